@@ -2,15 +2,18 @@ package com.emart.config;
 
 import com.emart.service.JwtService;
 import com.emart.service.UserService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
@@ -26,6 +29,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtService jwtService;
     private final UserService userService;
     
+    @Value("${app.security.claims-only-authorization:false}")
+    private boolean claimsOnlyAuthorization;
+    
     @Override
     protected void doFilterInternal(
             @NonNull HttpServletRequest request,
@@ -47,17 +53,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             // Extract JWT token from Authorization header
             jwt = authHeader.substring(7);
             
-            // Extract username from JWT token
-            username = jwtService.extractUsername(jwt);
+            // Verify the token once and work from its claims
+            Claims claims = jwtService.extractAllClaims(jwt);
+            username = claims.getSubject();
             
             // If username is extracted and no authentication is set in context
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
                 
-                // Load user details from database
-                UserDetails userDetails = userService.loadUserByUsername(username);
+                // Build the principal from the token's role claim, or load it (cached) from the database
+                String role = claims.get("role", String.class);
+                UserDetails userDetails = claimsOnlyAuthorization && role != null
+                        ? User.withUsername(username).password("").roles(role).build()
+                        : userService.loadUserByUsername(username);
                 
                 // Validate JWT token
-                if (jwtService.validateToken(jwt, userDetails)) {
+                if (jwtService.validateClaims(claims, userDetails)) {
                     
                     // Create authentication token
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
@@ -0,0 +1,127 @@
+package com.emart.config;
+
+import com.emart.model.EmailMessage;
+import com.emart.model.Invoice;
+import com.emart.model.Order;
+import com.emart.model.OrderOutboxTask;
+import com.emart.model.Payment;
+import com.emart.model.Product;
+import com.emart.model.RevenueBucket;
+import com.emart.model.User;
+import com.mongodb.MongoCommandException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates the indexes declared with @Indexed / @CompoundIndex on the models
+ * (auto index creation is off in Spring Boot). QueryPlanCoverageTest checks
+ * that the repository and service queries are served by them.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MongoIndexManager {
+
+    private static final List<Class<?>> INDEXED_ENTITIES = List.of(
+            Product.class, Order.class, Payment.class, Invoice.class, User.class,
+            OrderOutboxTask.class, EmailMessage.class, RevenueBucket.class);
+
+    // Server error codes for an existing index whose options differ from the requested one
+    private static final int INDEX_OPTIONS_CONFLICT = 85;
+    private static final int INDEX_KEY_SPECS_CONFLICT = 86;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${app.indexes.create-on-startup:true}")
+    private boolean createOnStartup;
+
+    // Runs before the other startup listeners, which scan these collections
+    @EventListener(ApplicationReadyEvent.class)
+    @org.springframework.core.annotation.Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onStartup() {
+        if (createOnStartup) {
+            ensureIndexes();
+        }
+    }
+
+    public List<String> ensureIndexes() {
+        IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+        List<String> created = new ArrayList<>();
+
+        for (Class<?> entity : INDEXED_ENTITIES) {
+            for (IndexDefinition index : resolver.resolveIndexFor(entity)) {
+                try {
+                    created.add(mongoTemplate.getCollectionName(entity) + "." + ensureIndex(entity, index));
+                } catch (Exception e) {
+                    log.warn("Could not create index {} on {}: {}", index.getIndexKeys().toJson(),
+                            mongoTemplate.getCollectionName(entity), e.getMessage());
+                }
+            }
+        }
+
+        log.info("Ensured {} Mongo indexes", created.size());
+        return created;
+    }
+
+    private String ensureIndex(Class<?> entity, IndexDefinition index) {
+        IndexOperations indexOps = mongoTemplate.indexOps(entity);
+        String name = index.getIndexOptions().getString("name");
+        try {
+            return indexOps.ensureIndex(index);
+        } catch (RuntimeException e) {
+            if (name == null || !isOptionsConflict(e)) {
+                throw e;
+            }
+        }
+
+        // The index exists under the same name with older options (e.g. now unique); replace it
+        log.warn("Replacing index {} on {} with {}", name, mongoTemplate.getCollectionName(entity),
+                index.getIndexOptions().toJson());
+        indexOps.dropIndex(name);
+        try {
+            return indexOps.ensureIndex(index);
+        } catch (RuntimeException e) {
+            // Typically duplicates under a new unique constraint; keep the keys indexed until they are cleaned up
+            indexOps.ensureIndex(new CompoundIndexDefinition(index.getIndexKeys()).named(name));
+            throw e;
+        }
+    }
+
+    private boolean isOptionsConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoCommandException commandException) {
+                return commandException.getErrorCode() == INDEX_OPTIONS_CONFLICT
+                        || commandException.getErrorCode() == INDEX_KEY_SPECS_CONFLICT;
+            }
+        }
+        return false;
+    }
+
+    public Map<String, Object> getIndexReport() {
+        Map<String, Object> indexes = new LinkedHashMap<>();
+        for (Class<?> entity : INDEXED_ENTITIES) {
+            indexes.put(mongoTemplate.getCollectionName(entity), mongoTemplate.indexOps(entity).getIndexInfo().stream()
+                    .map(info -> info.getName())
+                    .toList());
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("indexes", indexes);
+        return report;
+    }
+}
@@ -53,6 +53,7 @@ public class SecurityConfig {
                 
                 // Admin-only endpoints
                 .requestMatchers("/api/users/**").hasRole("ADMIN")
+                .requestMatchers("/api/admin/**").hasRole("ADMIN")
                 .requestMatchers("/api/products/pending").hasRole("ADMIN")
                 .requestMatchers("/api/products/expired").hasRole("ADMIN")
                 .requestMatchers("/api/products/low-stock").hasRole("ADMIN")
@@ -64,16 +65,19 @@ public class SecurityConfig {
                 .requestMatchers("/api/orders/{orderId}/status").hasRole("ADMIN")
                 .requestMatchers("/api/orders/{orderId}/payment-status").hasRole("ADMIN")
                 .requestMatchers("/api/orders/revenue/**").hasRole("ADMIN")
+                .requestMatchers("/api/orders/export").hasRole("ADMIN")
                 .requestMatchers("/api/payments/{paymentId}/refund").hasRole("ADMIN")
                 .requestMatchers("/api/payments/{paymentId}/status").hasRole("ADMIN")
                 .requestMatchers("/api/payments/revenue/**").hasRole("ADMIN")
+                .requestMatchers("/api/payments/export").hasRole("ADMIN")
                 .requestMatchers("/api/payments/methods/summary").hasRole("ADMIN")
                 .requestMatchers("/api/invoices/{invoiceId}/sign").hasRole("ADMIN")
                 .requestMatchers("/api/invoices/{invoiceId}/status").hasRole("ADMIN")
                 .requestMatchers("/api/invoices/{invoiceId}/send").hasRole("ADMIN")
                 .requestMatchers("/api/invoices/overdue").hasRole("ADMIN")
                 .requestMatchers("/api/invoices/revenue/**").hasRole("ADMIN")
-                .requestMatchers("/api/invoices/summary").hasRole("ADMIN")
+                .requestMatchers("/api/invoices/export").hasRole("ADMIN")
+                .requestMatchers("/api/invoices/summary/**").hasRole("ADMIN")
                 
                 // Supplier endpoints
                 .requestMatchers("/api/products").hasRole("SUPPLIER")
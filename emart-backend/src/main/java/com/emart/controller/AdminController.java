@@ -0,0 +1,99 @@
+package com.emart.controller;
+
+import com.emart.config.MongoIndexManager;
+import com.emart.service.EmailDispatcher;
+import com.emart.service.InventoryAlertService;
+import com.emart.service.ProductExpiryTracker;
+import com.emart.service.ProductSupplierMigration;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+public class AdminController {
+    
+    private final MongoIndexManager mongoIndexManager;
+    private final ProductSupplierMigration productSupplierMigration;
+    private final EmailDispatcher emailDispatcher;
+    private final InventoryAlertService inventoryAlertService;
+    private final ProductExpiryTracker productExpiryTracker;
+    
+    @GetMapping("/indexes/report")
+    public ResponseEntity<?> getIndexReport() {
+        try {
+            return ResponseEntity.ok(mongoIndexManager.getIndexReport());
+        } catch (Exception e) {
+            log.error("Index report failed: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/indexes/ensure")
+    public ResponseEntity<?> ensureIndexes() {
+        try {
+            List<String> indexes = mongoIndexManager.ensureIndexes();
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("indexes", indexes);
+            
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Index creation failed: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/migrations/product-supplier")
+    public ResponseEntity<?> migrateProductSuppliers() {
+        try {
+            return ResponseEntity.ok(productSupplierMigration.migrate());
+        } catch (Exception e) {
+            log.error("Product supplier migration failed: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/email-outbox/stats")
+    public ResponseEntity<?> getEmailOutboxStats() {
+        try {
+            return ResponseEntity.ok(emailDispatcher.getStats());
+        } catch (Exception e) {
+            log.error("Failed to get email outbox stats: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/email-outbox/requeue-dead")
+    public ResponseEntity<?> requeueDeadEmails() {
+        try {
+            return ResponseEntity.ok(Map.of("requeued", emailDispatcher.requeueDeadLetters()));
+        } catch (Exception e) {
+            log.error("Failed to requeue dead emails: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/inventory-alerts/run")
+    public ResponseEntity<?> runInventoryAlerts() {
+        try {
+            return ResponseEntity.ok(inventoryAlertService.run());
+        } catch (Exception e) {
+            log.error("Inventory alert run failed: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/product-expiry/stats")
+    public ResponseEntity<?> getProductExpiryStats() {
+        return ResponseEntity.ok(productExpiryTracker.getStats());
+    }
+}
@@ -65,8 +65,8 @@ public class AuthController {
             UserDetails userDetails = (UserDetails) authentication.getPrincipal();
             User user = userService.getUserByUsername(username);
             
-            // Generate JWT token
-            String token = jwtService.generateToken(userDetails);
+            // Generate JWT token carrying the role claim
+            String token = jwtService.generateToken(userDetails.getUsername(), user.getRole().name());
             
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Login successful");
@@ -1,13 +1,23 @@
 package com.emart.controller;
 
 import com.emart.service.BarcodeService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/barcodes")
@@ -16,7 +26,10 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class BarcodeController {
     
+    private static final String NDJSON = "application/x-ndjson";
+    
     private final BarcodeService barcodeService;
+    private final ObjectMapper objectMapper;
     
     @PostMapping("/generate")
     public ResponseEntity<?> generateBarcode(@RequestBody Map<String, String> request) {
@@ -65,25 +78,41 @@ public class BarcodeController {
     }
     
     @GetMapping("/image/{barcode}")
-    public ResponseEntity<?> getBarcodeImage(@PathVariable String barcode) {
+    public ResponseEntity<?> getBarcodeImage(@PathVariable String barcode,
+                                             @RequestParam(defaultValue = "png") String format,
+                                             @RequestParam(required = false) Integer width,
+                                             @RequestParam(required = false) Integer height) {
         try {
             if (!barcodeService.validateBarcode(barcode)) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Invalid barcode format"));
             }
             
-            String barcodeImage = barcodeService.generateBarcodeImage(barcode);
+            BarcodeService.ImageFormat imageFormat;
+            try {
+                imageFormat = BarcodeService.ImageFormat.valueOf(format.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Unsupported image format: " + format));
+            }
             
-            Map<String, Object> response = new HashMap<>();
-            response.put("barcode", barcode);
-            response.put("barcodeImage", barcodeImage);
+            byte[] image = barcodeService.renderBarcodeImage(barcode, imageFormat, width, height);
             
-            return ResponseEntity.ok(response);
+            // The image for a given barcode and size never changes, so clients may keep it indefinitely
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(imageFormat.getMediaType()))
+                    .contentLength(image.length)
+                    .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                    .body(image);
         } catch (Exception e) {
             log.error("Barcode image generation failed: {}", e.getMessage());
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
     
+    @GetMapping("/image-cache/stats")
+    public ResponseEntity<?> getImageCacheStats() {
+        return ResponseEntity.ok(barcodeService.getImageCacheStats());
+    }
+    
     @PostMapping("/bulk-generate")
     public ResponseEntity<?> generateBulkBarcodes(@RequestBody Map<String, Object> request) {
         try {
@@ -94,34 +123,13 @@ public class BarcodeController {
                 return ResponseEntity.badRequest().body(Map.of("error", "Product names list is required"));
             }
             
-            java.util.List<Map<String, Object>> results = new java.util.ArrayList<>();
-            
-            for (String productName : productNames) {
-                try {
-                    String barcode = barcodeService.generateBarcode(productName);
-                    String barcodeImage = barcodeService.generateBarcodeImage(barcode);
-                    
-                    Map<String, Object> result = new HashMap<>();
-                    result.put("productName", productName);
-                    result.put("barcode", barcode);
-                    result.put("barcodeImage", barcodeImage);
-                    result.put("success", true);
-                    
-                    results.add(result);
-                } catch (Exception e) {
-                    Map<String, Object> result = new HashMap<>();
-                    result.put("productName", productName);
-                    result.put("error", e.getMessage());
-                    result.put("success", false);
-                    
-                    results.add(result);
-                }
-            }
+            java.util.List<Map<String, Object>> results = new java.util.ArrayList<>(productNames.size());
+            int successful = barcodeService.generateBulk(productNames, results::add);
             
             Map<String, Object> response = new HashMap<>();
             response.put("results", results);
             response.put("total", productNames.size());
-            response.put("successful", results.stream().mapToInt(r -> (Boolean) r.get("success") ? 1 : 0).sum());
+            response.put("successful", successful);
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -130,6 +138,42 @@ public class BarcodeController {
         }
     }
     
+    @PostMapping("/bulk-generate/stream")
+    public ResponseEntity<?> streamBulkBarcodes(@RequestBody Map<String, Object> request) {
+        try {
+            @SuppressWarnings("unchecked")
+            java.util.List<String> productNames = (java.util.List<String>) request.get("productNames");
+            
+            if (productNames == null || productNames.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Product names list is required"));
+            }
+            
+            // One JSON object per line as results complete, followed by a summary line
+            StreamingResponseBody body = outputStream -> {
+                OutputStream buffered = new BufferedOutputStream(outputStream);
+                int successful = barcodeService.generateBulk(productNames, result -> writeLine(buffered, result));
+                writeLine(buffered, Map.of("total", productNames.size(), "successful", successful));
+                buffered.flush();
+            };
+            
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(NDJSON))
+                    .body(body);
+        } catch (Exception e) {
+            log.error("Bulk barcode generation failed: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    private void writeLine(OutputStream outputStream, Map<String, Object> line) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(line));
+            outputStream.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
     @GetMapping("/info")
     public ResponseEntity<?> getBarcodeInfo() {
         try {
@@ -1,18 +1,26 @@
 package com.emart.controller;
 
 import com.emart.model.Invoice;
+import com.emart.service.ExportService;
 import com.emart.service.InvoiceService;
+import com.emart.service.InvoiceSummaryService;
 import com.emart.service.JwtService;
 import com.emart.service.EmailService;
+import com.emart.util.ConditionalRequests;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -66,21 +74,28 @@ public class InvoiceController {
     }
     
     @GetMapping("/{invoiceId}/pdf")
-    public ResponseEntity<?> downloadInvoicePDF(@PathVariable String invoiceId) {
+    public ResponseEntity<?> downloadInvoicePDF(@PathVariable String invoiceId, ServletWebRequest webRequest) {
         try {
-            String pdfPath = invoiceService.generateInvoicePDF(invoiceId);
+            InvoiceService.InvoicePdf pdf = invoiceService.getInvoicePdf(invoiceId);
+            String eTag = "\"" + pdf.contentHash() + "\"";
             
-            // In a real implementation, you would read the actual PDF file
-            // For now, we'll return a placeholder response
-            String pdfContent = "PDF content for invoice " + invoiceId;
+            // Writes the 304 itself when the client's copy is current
+            if (ConditionalRequests.checkNotModified(webRequest, eTag)) {
+                return null;
+            }
+            
+            // Stream the cached file instead of loading it into memory
+            Resource resource = new FileSystemResource(pdf.path());
             
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_PDF);
             headers.setContentDispositionFormData("attachment", "invoice_" + invoiceId + ".pdf");
+            headers.setETag(eTag);
+            headers.setContentLength(resource.contentLength());
             
             return ResponseEntity.ok()
                     .headers(headers)
-                    .body(pdfContent.getBytes());
+                    .body(resource);
         } catch (Exception e) {
             log.error("PDF generation failed: {}", e.getMessage());
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -130,9 +145,40 @@ public class InvoiceController {
     }
     
     // General endpoints
+    @GetMapping("/export")
+    public ResponseEntity<?> exportInvoices(@RequestParam(defaultValue = "csv") String format,
+                                            @RequestParam(required = false) String startDate,
+                                            @RequestParam(required = false) String endDate,
+                                            @RequestParam(defaultValue = "false") boolean gzip) {
+        try {
+            ExportService.Format exportFormat = ExportService.Format.from(format);
+            LocalDateTime start = startDate != null ? LocalDateTime.parse(startDate) : null;
+            LocalDateTime end = endDate != null ? LocalDateTime.parse(endDate) : null;
+            
+            // Rows are written as they come off the database cursor
+            StreamingResponseBody body = outputStream ->
+                    invoiceService.exportInvoices(exportFormat, start, end, gzip, outputStream);
+            
+            String fileName = "invoices" + exportFormat.getExtension() + (gzip ? ".gz" : "");
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getMediaType()))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                    .body(body);
+        } catch (Exception e) {
+            log.error("Invoice export failed: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     @GetMapping
-    public ResponseEntity<?> getAllInvoices() {
+    public ResponseEntity<?> getAllInvoices(@RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) Integer limit) {
         try {
+            // Paging parameters opt in to keyset pages; without them the full list is returned as before
+            if (cursor != null || limit != null) {
+                return ResponseEntity.ok(invoiceService.getInvoicesPage(cursor, limit));
+            }
+            
             List<Invoice> invoices = invoiceService.getAllInvoices();
             return ResponseEntity.ok(invoices);
         } catch (Exception e) {
@@ -233,11 +279,17 @@ public class InvoiceController {
     @GetMapping("/summary")
     public ResponseEntity<?> getInvoiceSummary() {
         try {
-            BigDecimal totalAmount = invoiceService.getTotalInvoiceAmount();
-            BigDecimal paidAmount = invoiceService.getPaidInvoiceAmount();
-            BigDecimal pendingAmount = invoiceService.getPendingInvoiceAmount();
+            // One read of the maintained counters serves every figure
+            Map<Invoice.InvoiceStatus, InvoiceSummaryService.StatusTotals> byStatus = invoiceService.getInvoiceTotalsByStatus();
+            BigDecimal totalAmount = byStatus.values().stream()
+                    .map(InvoiceSummaryService.StatusTotals::amount)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal paidAmount = byStatus.get(Invoice.InvoiceStatus.PAID).amount();
+            BigDecimal pendingAmount = byStatus.get(Invoice.InvoiceStatus.DRAFT).amount()
+                    .add(byStatus.get(Invoice.InvoiceStatus.SENT).amount());
             
             Map<String, Object> summary = new HashMap<>();
+            summary.put("byStatus", byStatus);
             summary.put("totalAmount", totalAmount);
             summary.put("paidAmount", paidAmount);
             summary.put("pendingAmount", pendingAmount);
@@ -251,4 +303,14 @@ public class InvoiceController {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
+    
+    @PostMapping("/summary/rebuild")
+    public ResponseEntity<?> rebuildInvoiceSummary() {
+        try {
+            return ResponseEntity.ok(Map.of("byStatus", invoiceService.rebuildInvoiceSummary()));
+        } catch (Exception e) {
+            log.error("Failed to rebuild invoice summary: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
 } 
\ No newline at end of file
@@ -1,14 +1,17 @@
 package com.emart.controller;
 
 import com.emart.model.Order;
+import com.emart.service.ExportService;
 import com.emart.service.OrderService;
 import com.emart.service.ProductService;
 import com.emart.service.JwtService;
-import com.emart.service.EmailService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -26,7 +29,6 @@ public class OrderController {
     private final OrderService orderService;
     private final ProductService productService;
     private final JwtService jwtService;
-    private final EmailService emailService;
     
     // Customer endpoints
     @PostMapping
@@ -38,14 +40,6 @@ public class OrderController {
             
             Order createdOrder = orderService.createOrder(order, customerId);
             
-            // Send order confirmation email
-            emailService.sendOrderConfirmation(
-                createdOrder.getCustomerEmail(),
-                createdOrder.getCustomerName(),
-                createdOrder.getOrderNumber(),
-                createdOrder.getTotal().toString()
-            );
-            
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Order created successfully");
             response.put("order", createdOrder);
@@ -148,9 +142,40 @@ public class OrderController {
     }
     
     // General endpoints
+    @GetMapping("/export")
+    public ResponseEntity<?> exportOrders(@RequestParam(defaultValue = "csv") String format,
+                                          @RequestParam(required = false) String startDate,
+                                          @RequestParam(required = false) String endDate,
+                                          @RequestParam(defaultValue = "false") boolean gzip) {
+        try {
+            ExportService.Format exportFormat = ExportService.Format.from(format);
+            LocalDateTime start = startDate != null ? LocalDateTime.parse(startDate) : null;
+            LocalDateTime end = endDate != null ? LocalDateTime.parse(endDate) : null;
+            
+            // Rows are written as they come off the database cursor
+            StreamingResponseBody body = outputStream ->
+                    orderService.exportOrders(exportFormat, start, end, gzip, outputStream);
+            
+            String fileName = "orders" + exportFormat.getExtension() + (gzip ? ".gz" : "");
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getMediaType()))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                    .body(body);
+        } catch (Exception e) {
+            log.error("Order export failed: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     @GetMapping
-    public ResponseEntity<?> getAllOrders() {
+    public ResponseEntity<?> getAllOrders(@RequestParam(required = false) String cursor,
+                                          @RequestParam(required = false) Integer limit) {
         try {
+            // Paging parameters opt in to keyset pages; without them the full list is returned as before
+            if (cursor != null || limit != null) {
+                return ResponseEntity.ok(orderService.getOrdersPage(cursor, limit));
+            }
+            
             List<Order> orders = orderService.getAllOrders();
             return ResponseEntity.ok(orders);
         } catch (Exception e) {
@@ -262,6 +287,26 @@ public class OrderController {
         }
     }
     
+    @PostMapping("/revenue/rollups/rebuild")
+    public ResponseEntity<?> rebuildRevenueRollups() {
+        try {
+            return ResponseEntity.ok(orderService.rebuildRevenueRollups());
+        } catch (Exception e) {
+            log.error("Failed to rebuild revenue rollups: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/revenue/rollups/check")
+    public ResponseEntity<?> checkRevenueRollups() {
+        try {
+            return ResponseEntity.ok(orderService.checkRevenueRollups());
+        } catch (Exception e) {
+            log.error("Failed to check revenue rollups: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     @GetMapping("/check-stock/{productId}")
     public ResponseEntity<?> checkStockAvailability(@PathVariable String productId,
                                                   @RequestParam int quantity) {
@@ -1,13 +1,16 @@
 package com.emart.controller;
 
 import com.emart.model.Payment;
+import com.emart.service.ExportService;
 import com.emart.service.PaymentService;
 import com.emart.service.JwtService;
-import com.emart.service.EmailService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -24,7 +27,6 @@ public class PaymentController {
     
     private final PaymentService paymentService;
     private final JwtService jwtService;
-    private final EmailService emailService;
     
     @PostMapping("/process")
     public ResponseEntity<?> processPayment(@RequestHeader("Authorization") String authHeader,
@@ -40,21 +42,13 @@ public class PaymentController {
             
             Payment payment = paymentService.processPayment(orderId, paymentMethod, amount, gatewayResponse);
             
-            // Send payment confirmation email if successful
-            if (payment.getStatus() == Payment.PaymentStatus.COMPLETED) {
-                emailService.sendPaymentConfirmation(
-                    payment.getCustomerEmail(),
-                    payment.getCustomerName(),
-                    payment.getOrderNumber(),
-                    payment.getAmount().toString()
-                );
-            }
-            
+            // The gateway answers asynchronously; clients poll the payment for the final status
             Map<String, Object> response = new HashMap<>();
-            response.put("message", "Payment processed successfully");
+            response.put("message", "Payment is being processed");
             response.put("payment", payment);
+            response.put("statusUrl", "/api/payments/" + payment.getId());
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.accepted().body(response);
         } catch (Exception e) {
             log.error("Payment processing failed: {}", e.getMessage());
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -130,9 +124,40 @@ public class PaymentController {
     }
     
     // General endpoints
+    @GetMapping("/export")
+    public ResponseEntity<?> exportPayments(@RequestParam(defaultValue = "csv") String format,
+                                            @RequestParam(required = false) String startDate,
+                                            @RequestParam(required = false) String endDate,
+                                            @RequestParam(defaultValue = "false") boolean gzip) {
+        try {
+            ExportService.Format exportFormat = ExportService.Format.from(format);
+            LocalDateTime start = startDate != null ? LocalDateTime.parse(startDate) : null;
+            LocalDateTime end = endDate != null ? LocalDateTime.parse(endDate) : null;
+            
+            // Rows are written as they come off the database cursor
+            StreamingResponseBody body = outputStream ->
+                    paymentService.exportPayments(exportFormat, start, end, gzip, outputStream);
+            
+            String fileName = "payments" + exportFormat.getExtension() + (gzip ? ".gz" : "");
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getMediaType()))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                    .body(body);
+        } catch (Exception e) {
+            log.error("Payment export failed: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     @GetMapping
-    public ResponseEntity<?> getAllPayments() {
+    public ResponseEntity<?> getAllPayments(@RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) Integer limit) {
         try {
+            // Paging parameters opt in to keyset pages; without them the full list is returned as before
+            if (cursor != null || limit != null) {
+                return ResponseEntity.ok(paymentService.getPaymentsPage(cursor, limit));
+            }
+            
             List<Payment> payments = paymentService.getAllPayments();
             return ResponseEntity.ok(payments);
         } catch (Exception e) {
@@ -252,25 +277,34 @@ public class PaymentController {
         }
     }
     
+    @PostMapping("/revenue/rollups/rebuild")
+    public ResponseEntity<?> rebuildRevenueRollups() {
+        try {
+            return ResponseEntity.ok(paymentService.rebuildRevenueRollups());
+        } catch (Exception e) {
+            log.error("Failed to rebuild payment rollups: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/revenue/rollups/check")
+    public ResponseEntity<?> checkRevenueRollups() {
+        try {
+            return ResponseEntity.ok(paymentService.checkRevenueRollups());
+        } catch (Exception e) {
+            log.error("Failed to check payment rollups: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     @GetMapping("/methods/summary")
-    public ResponseEntity<?> getPaymentMethodsSummary() {
+    public ResponseEntity<?> getPaymentMethodsSummary(@RequestParam(required = false) String startDate,
+                                                      @RequestParam(required = false) String endDate) {
         try {
-            Map<String, Object> summary = new HashMap<>();
-            
-            for (Payment.PaymentMethod method : Payment.PaymentMethod.values()) {
-                List<Payment> payments = paymentService.getPaymentsByMethod(method);
-                BigDecimal total = payments.stream()
-                        .filter(p -> p.getStatus() == Payment.PaymentStatus.COMPLETED)
-                        .map(Payment::getAmount)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-                
-                summary.put(method.toString(), Map.of(
-                    "count", payments.size(),
-                    "total", total
-                ));
-            }
+            LocalDateTime start = startDate != null ? LocalDateTime.parse(startDate) : null;
+            LocalDateTime end = endDate != null ? LocalDateTime.parse(endDate) : null;
             
-            return ResponseEntity.ok(summary);
+            return ResponseEntity.ok(paymentService.getPaymentMethodsSummary(start, end));
         } catch (Exception e) {
             log.error("Failed to get payment methods summary: {}", e.getMessage());
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -2,13 +2,19 @@ package com.emart.controller;
 
 import com.emart.model.Product;
 import com.emart.model.User;
+import com.emart.service.CatalogSnapshot;
 import com.emart.service.ProductService;
 import com.emart.service.JwtService;
 import com.emart.service.EmailService;
+import com.emart.util.ConditionalRequests;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -23,6 +29,9 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class ProductController {
     
+    private static final int DEFAULT_PRICE_RANGE_LIMIT = 100;
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    
     private final ProductService productService;
     private final JwtService jwtService;
     private final EmailService emailService;
@@ -107,9 +116,9 @@ public class ProductController {
             Product approvedProduct = productService.approveProduct(productId, adminId);
             
             // Send notification to supplier
-            if (approvedProduct.getSupplier() != null && approvedProduct.getSupplier().getEmail() != null) {
+            if (approvedProduct.getSupplierEmail() != null) {
                 emailService.sendProductApprovalNotification(
-                    approvedProduct.getSupplier().getEmail(),
+                    approvedProduct.getSupplierEmail(),
                     approvedProduct.getSupplierName(),
                     approvedProduct.getName()
                 );
@@ -138,9 +147,9 @@ public class ProductController {
             Product rejectedProduct = productService.rejectProduct(productId, adminId, reason);
             
             // Send notification to supplier
-            if (rejectedProduct.getSupplier() != null && rejectedProduct.getSupplier().getEmail() != null) {
+            if (rejectedProduct.getSupplierEmail() != null) {
                 emailService.sendProductRejectionNotification(
-                    rejectedProduct.getSupplier().getEmail(),
+                    rejectedProduct.getSupplierEmail(),
                     rejectedProduct.getSupplierName(),
                     rejectedProduct.getName(),
                     reason
@@ -170,10 +179,9 @@ public class ProductController {
     }
     
     @GetMapping("/approved")
-    public ResponseEntity<?> getApprovedProducts() {
+    public ResponseEntity<?> getApprovedProducts(ServletWebRequest webRequest) {
         try {
-            List<Product> approvedProducts = productService.getApprovedProducts();
-            return ResponseEntity.ok(approvedProducts);
+            return catalogListing(CatalogSnapshot.View.APPROVED, webRequest);
         } catch (Exception e) {
             log.error("Failed to get approved products: {}", e.getMessage());
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -181,16 +189,32 @@ public class ProductController {
     }
     
     @GetMapping("/available")
-    public ResponseEntity<?> getAvailableProducts() {
+    public ResponseEntity<?> getAvailableProducts(ServletWebRequest webRequest) {
         try {
-            List<Product> availableProducts = productService.getAvailableProducts();
-            return ResponseEntity.ok(availableProducts);
+            return catalogListing(CatalogSnapshot.View.AVAILABLE, webRequest);
         } catch (Exception e) {
             log.error("Failed to get available products: {}", e.getMessage());
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
     
+    private ResponseEntity<?> catalogListing(CatalogSnapshot.View view, ServletWebRequest webRequest) {
+        CatalogSnapshot.Listing listing = productService.getCatalogListing(view);
+        
+        // Clients must revalidate, but an unchanged catalog costs them only a 304
+        if (ConditionalRequests.checkNotModified(webRequest, listing.eTag())) {
+            webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+            return null;
+        }
+        
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(listing.body().length)
+                .eTag(listing.eTag())
+                .cacheControl(CacheControl.noCache())
+                .body(listing.body());
+    }
+    
     @GetMapping("/expired")
     public ResponseEntity<?> getExpiredProducts() {
         try {
@@ -233,8 +257,14 @@ public class ProductController {
     
     // General endpoints
     @GetMapping
-    public ResponseEntity<?> getAllProducts() {
+    public ResponseEntity<?> getAllProducts(@RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) Integer limit) {
         try {
+            // Paging parameters opt in to keyset pages; without them the full list is returned as before
+            if (cursor != null || limit != null) {
+                return ResponseEntity.ok(productService.getProductsPage(cursor, limit));
+            }
+            
             List<Product> products = productService.getAllProducts();
             return ResponseEntity.ok(products);
         } catch (Exception e) {
@@ -266,9 +296,17 @@ public class ProductController {
     }
     
     @GetMapping("/search")
-    public ResponseEntity<?> searchProducts(@RequestParam String query) {
+    public ResponseEntity<?> searchProducts(@RequestParam String query,
+                                          @RequestParam(required = false) Integer offset,
+                                          @RequestParam(required = false) Integer limit) {
         try {
-            List<Product> products = productService.searchProducts(query);
+            // Paging parameters opt in to bounded pages; without them every match is returned as before
+            if (offset == null && limit == null) {
+                return ResponseEntity.ok(productService.searchProducts(query));
+            }
+            
+            List<Product> products = productService.searchProducts(query,
+                    offset == null ? 0 : offset, limit == null ? DEFAULT_SEARCH_LIMIT : limit);
             return ResponseEntity.ok(products);
         } catch (Exception e) {
             log.error("Product search failed: {}", e.getMessage());
@@ -278,9 +316,20 @@ public class ProductController {
     
     @GetMapping("/price-range")
     public ResponseEntity<?> getProductsByPriceRange(@RequestParam BigDecimal minPrice,
-                                                   @RequestParam BigDecimal maxPrice) {
+                                                   @RequestParam BigDecimal maxPrice,
+                                                   @RequestParam(required = false) Integer offset,
+                                                   @RequestParam(required = false) Integer limit,
+                                                   @RequestParam(defaultValue = "asc") String sort) {
         try {
-            List<Product> products = productService.getProductsByPriceRange(minPrice, maxPrice);
+            boolean descending = "desc".equalsIgnoreCase(sort);
+            
+            // Paging parameters opt in to bounded pages; without them the whole range is returned as before
+            if (offset == null && limit == null) {
+                return ResponseEntity.ok(productService.getProductsByPriceRange(minPrice, maxPrice, descending));
+            }
+            
+            List<Product> products = productService.getProductsByPriceRange(minPrice, maxPrice,
+                    offset == null ? 0 : offset, limit == null ? DEFAULT_PRICE_RANGE_LIMIT : limit, descending);
             return ResponseEntity.ok(products);
         } catch (Exception e) {
             log.error("Price range search failed: {}", e.getMessage());
@@ -26,7 +26,9 @@ public class UserController {
     
     // Admin endpoints
     @GetMapping
-    public ResponseEntity<?> getAllUsers(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getAllUsers(@RequestHeader("Authorization") String authHeader,
+                                       @RequestParam(required = false) String cursor,
+                                       @RequestParam(required = false) Integer limit) {
         try {
             String token = authHeader.substring(7);
             String adminId = jwtService.extractUsername(token);
@@ -37,6 +39,11 @@ public class UserController {
                 return ResponseEntity.status(403).body(Map.of("error", "Access denied"));
             }
             
+            // Paging parameters opt in to keyset pages; without them the full list is returned as before
+            if (cursor != null || limit != null) {
+                return ResponseEntity.ok(userService.getUsersPage(cursor, limit));
+            }
+            
             List<User> users = userService.getAllUsers();
             return ResponseEntity.ok(users);
         } catch (Exception e) {
@@ -87,6 +94,24 @@ public class UserController {
         }
     }
     
+    @GetMapping("/cache/stats")
+    public ResponseEntity<?> getUserCacheStats(@RequestHeader("Authorization") String authHeader) {
+        try {
+            String token = authHeader.substring(7);
+            String role = jwtService.getRoleFromToken(token);
+            
+            // Only admins can access cache statistics
+            if (!"ADMIN".equals(role)) {
+                return ResponseEntity.status(403).body(Map.of("error", "Access denied"));
+            }
+            
+            return ResponseEntity.ok(userService.getUserCacheStats());
+        } catch (Exception e) {
+            log.error("Failed to get user cache stats: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     @GetMapping("/{userId}")
     public ResponseEntity<?> getUserById(@RequestHeader("Authorization") String authHeader,
                                        @PathVariable String userId) {
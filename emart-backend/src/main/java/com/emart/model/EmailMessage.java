@@ -0,0 +1,53 @@
+package com.emart.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "email_outbox")
+@CompoundIndex(name = "status_next_attempt", def = "{'status': 1, 'nextAttemptAt': 1}")
+public class EmailMessage {
+    
+    @Id
+    private String id;
+    
+    // Set for notifications that must go out at most once per business event
+    @Indexed(unique = true, sparse = true)
+    private String dedupKey;
+    
+    private String to;
+    private String subject;
+    private String body;
+    
+    // Optional HTML alternative to the plain-text body
+    private String htmlBody;
+    
+    private Status status;
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    
+    @Indexed
+    private String leaseOwner;
+    
+    private LocalDateTime leaseExpiresAt;
+    private String lastError;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    
+    // Delivered mail is only kept for a while; dead letters have no sentAt and stay
+    @Indexed(expireAfter = "30d")
+    private LocalDateTime sentAt;
+    
+    public enum Status {
+        PENDING, SENDING, SENT, DEAD
+    }
+}
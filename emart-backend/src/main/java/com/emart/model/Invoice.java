@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.index.Indexed;
 
@@ -16,6 +18,13 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "invoices")
+@CompoundIndexes({
+    @CompoundIndex(name = "due_date_status", def = "{'dueDate': 1, 'status': 1}"),
+    @CompoundIndex(name = "status_created_at", def = "{'status': 1, 'createdAt': 1}"),
+    @CompoundIndex(name = "customer_status", def = "{'customerId': 1, 'status': 1}"),
+    @CompoundIndex(name = "order_id", def = "{'orderId': 1}", unique = true, sparse = true),
+    @CompoundIndex(name = "created_at", def = "{'createdAt': 1}")
+})
 public class Invoice {
     
     @Id
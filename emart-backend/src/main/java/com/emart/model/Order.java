@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.index.Indexed;
 
@@ -15,6 +17,12 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "orders")
+@CompoundIndexes({
+    @CompoundIndex(name = "customer_order_date", def = "{'customerId': 1, 'orderDate': -1}"),
+    @CompoundIndex(name = "status_order_date", def = "{'status': 1, 'orderDate': -1}"),
+    @CompoundIndex(name = "payment_status_order_date", def = "{'paymentStatus': 1, 'orderDate': 1}"),
+    @CompoundIndex(name = "order_date", def = "{'orderDate': 1}")
+})
 public class Order {
     
     @Id
@@ -0,0 +1,42 @@
+package com.emart.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "order_outbox")
+@CompoundIndex(name = "status_next_attempt", def = "{'status': 1, 'nextAttemptAt': 1}")
+public class OrderOutboxTask {
+    
+    @Id
+    private String id;
+    
+    @Indexed(unique = true)
+    private String orderId;
+    
+    private Stage stage;
+    private Status status;
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime leaseExpiresAt;
+    private String lastError;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    
+    public enum Stage {
+        GENERATE_INVOICE, SEND_CONFIRMATION
+    }
+    
+    public enum Status {
+        PENDING, PROCESSING, COMPLETED, FAILED
+    }
+}
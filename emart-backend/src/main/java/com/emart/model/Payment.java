@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.index.Indexed;
 
@@ -14,6 +16,14 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "payments")
+@CompoundIndexes({
+    @CompoundIndex(name = "payment_date", def = "{'paymentDate': 1}"),
+    @CompoundIndex(name = "status_payment_date", def = "{'status': 1, 'paymentDate': 1}"),
+    @CompoundIndex(name = "customer_status", def = "{'customerId': 1, 'status': 1}"),
+    @CompoundIndex(name = "method_status", def = "{'paymentMethod': 1, 'status': 1}"),
+    @CompoundIndex(name = "order_id", def = "{'orderId': 1}"),
+    @CompoundIndex(name = "gateway_transaction_id", def = "{'gatewayTransactionId': 1}")
+})
 public class Payment {
     
     @Id
@@ -1,12 +1,14 @@
 package com.emart.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.index.Indexed;
-import org.springframework.data.mongodb.core.mapping.DBRef;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -16,6 +18,14 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "products")
+@CompoundIndexes({
+    @CompoundIndex(name = "supplier_status", def = "{'supplierId': 1, 'status': 1}"),
+    @CompoundIndex(name = "status_quantity", def = "{'status': 1, 'quantity': 1}"),
+    @CompoundIndex(name = "best_before", def = "{'bestBefore': 1}"),
+    @CompoundIndex(name = "quantity", def = "{'quantity': 1}"),
+    @CompoundIndex(name = "updated_at", def = "{'updatedAt': 1}"),
+    @CompoundIndex(name = "stock_reservations", def = "{'stockReservations': 1}", sparse = true)
+})
 public class Product {
     
     @Id
@@ -30,9 +40,8 @@ public class Product {
     private Integer quantity;
     private LocalDate bestBefore;
     
-    @DBRef
-    private User supplier;
-    
+    // Snapshot of the supplying user, refreshed when their profile changes
+    private String supplierId;
     private String supplierName;
     private String supplierEmail;
     
@@ -42,7 +51,14 @@ public class Product {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     
+    // Set once a product has been included in an inventory alert digest. Written without a change
+    // event, so kept out of the JSON that the catalog snapshot and indexes cache
+    @JsonIgnore
+    private LocalDateTime lowStockAlertedAt;
+    @JsonIgnore
+    private LocalDateTime expiryAlertedAt;
+    
     public enum ProductStatus {
-        PENDING, APPROVED, REJECTED, OUT_OF_STOCK
+        PENDING, APPROVED, REJECTED, OUT_OF_STOCK, EXPIRED
     }
 } 
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.emart.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "revenue_buckets")
+@CompoundIndex(name = "metric_granularity_start", def = "{'metric': 1, 'granularity': 1, 'bucketStart': 1}")
+public class RevenueBucket {
+    
+    // metric:granularity:bucketStart, so every bucket can be upserted by id
+    @Id
+    private String id;
+    
+    private Metric metric;
+    private Granularity granularity;
+    
+    // Start of the hour or day covered; null for the all-time TOTAL bucket
+    private LocalDateTime bucketStart;
+    
+    // Decimal128 so the amount can be adjusted with $inc
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal amount;
+    
+    private long count;
+    private LocalDateTime updatedAt;
+    
+    public enum Metric {
+        ORDER_REVENUE, PAYMENT_REVENUE, PAYMENT_REFUNDS
+    }
+    
+    public enum Granularity {
+        HOUR, DAY, TOTAL
+    }
+}
@@ -0,0 +1,21 @@
+package com.emart.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "sequence_counters")
+public class SequenceCounter {
+    
+    // Sequence name, e.g. "order"
+    @Id
+    private String id;
+    
+    // Highest number handed out to any instance so far
+    private long value;
+}
@@ -0,0 +1,17 @@
+package com.emart.repository;
+
+import com.emart.model.EmailMessage;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends MongoRepository<EmailMessage, String> {
+    
+    @Query("{'status': ?0}")
+    List<EmailMessage> findByStatus(EmailMessage.Status status);
+    
+    long countByStatus(EmailMessage.Status status);
+}
@@ -0,0 +1,17 @@
+package com.emart.repository;
+
+import com.emart.model.OrderOutboxTask;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OrderOutboxRepository extends MongoRepository<OrderOutboxTask, String> {
+    
+    @Query("{'status': ?0}")
+    List<OrderOutboxTask> findByStatus(OrderOutboxTask.Status status);
+    
+    long countByStatus(OrderOutboxTask.Status status);
+}
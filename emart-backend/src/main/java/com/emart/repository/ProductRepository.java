@@ -1,7 +1,6 @@
 package com.emart.repository;
 
 import com.emart.model.Product;
-import com.emart.model.User;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -20,10 +19,11 @@ public interface ProductRepository extends MongoRepository<Product, String> {
     @Query("{'status': ?0}")
     List<Product> findByStatus(Product.ProductStatus status);
     
-    List<Product> findBySupplier(User supplier);
+    @Query("{'supplierId': ?0}")
+    List<Product> findBySupplierId(String supplierId);
     
-    @Query("{'supplier._id': ?0, 'status': ?1}")
-    List<Product> findBySupplierAndStatus(User supplier, Product.ProductStatus status);
+    @Query("{'supplierId': ?0, 'status': ?1}")
+    List<Product> findBySupplierIdAndStatus(String supplierId, Product.ProductStatus status);
     
     @Query("{'status': 'APPROVED', 'quantity': {$gt: 0}}")
     List<Product> findAvailableProducts();
@@ -0,0 +1,91 @@
+package com.emart.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates unique, roughly time-ordered barcode ids without touching the
+ * database. Each id packs milliseconds since {@link #EPOCH_MILLIS}, a node id
+ * and a per-millisecond sequence into 63 bits, rendered as fixed-width
+ * base-36 ([0-9A-Z]) so it is always a valid Code128 barcode.
+ */
+@Component
+@Slf4j
+public class BarcodeIdGenerator {
+
+    // 2024-01-01T00:00:00Z
+    static final long EPOCH_MILLIS = 1704067200000L;
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    // Long.MAX_VALUE in base 36 is 13 digits
+    static final int ID_LENGTH = 13;
+
+    @Value("${barcode.node-id:-1}")
+    private long configuredNodeId;
+
+    private long nodeId;
+
+    private final LongSupplier clock;
+
+    // (millis << SEQUENCE_BITS) | sequence of the last id handed out
+    private final AtomicLong lastState = new AtomicLong();
+
+    public BarcodeIdGenerator() {
+        this.clock = System::currentTimeMillis;
+    }
+
+    // For tests that need a fixed node and a controllable clock
+    BarcodeIdGenerator(long nodeId, LongSupplier clock) {
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    void resolveNodeId() {
+        if (configuredNodeId >= 0) {
+            if (configuredNodeId > MAX_NODE_ID) {
+                throw new IllegalStateException("barcode.node-id must be between 0 and " + MAX_NODE_ID);
+            }
+            nodeId = configuredNodeId;
+        } else {
+            nodeId = hostNodeId();
+            log.warn("barcode.node-id is not set, using {} derived from the host name; "
+                    + "set it explicitly when running several instances", nodeId);
+        }
+    }
+
+    public long nextId() {
+        long now = (clock.getAsLong() - EPOCH_MILLIS) << SEQUENCE_BITS;
+
+        // Move strictly forward: a sequence overflow or a clock step backwards borrows the next millisecond
+        long state = lastState.updateAndGet(previous -> Math.max(previous + 1, now));
+
+        long millis = state >>> SEQUENCE_BITS;
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | (state & SEQUENCE_MASK);
+    }
+
+    public String nextCode() {
+        String code = Long.toString(nextId(), Character.MAX_RADIX).toUpperCase(Locale.ROOT);
+        return "0".repeat(ID_LENGTH - code.length()) + code;
+    }
+
+    private long hostNodeId() {
+        try {
+            return InetAddress.getLocalHost().getHostName().hashCode() & MAX_NODE_ID;
+        } catch (UnknownHostException e) {
+            return ProcessHandle.current().pid() & MAX_NODE_ID;
+        }
+    }
+}
@@ -1,55 +1,272 @@
 package com.emart.service;
 
+import com.emart.util.BoundedCache;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.EncodeHintType;
 import com.google.zxing.WriterException;
 import com.google.zxing.common.BitMatrix;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.oned.Code128Writer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class BarcodeService {
     
-    private final Random random = new Random();
+    private static final String IMAGE_PATH = "/api/barcodes/image/";
+    private static final int MIN_IMAGE_DIMENSION = 20;
+    private static final int MAX_IMAGE_DIMENSION = 2000;
+    
+    private final BarcodeIdGenerator barcodeIdGenerator;
+    
+    @Value("${barcode.width:300}")
+    private int defaultWidth;
+    
+    @Value("${barcode.height:100}")
+    private int defaultHeight;
+    
+    @Value("${barcode.image-cache.max-entries:5000}")
+    private int imageCacheMaxEntries;
+    
+    @Value("${barcode.image-cache.max-bytes:67108864}")
+    private long imageCacheMaxBytes;
+    
+    @Value("${barcode.bulk.parallelism:0}")
+    private int bulkParallelism;
+    
+    @Value("${barcode.bulk.window-size:256}")
+    private int bulkWindowSize;
+    
+    private BoundedCache<ImageKey, byte[]> imageCache;
+    private ExecutorService bulkExecutor;
+    
+    @PostConstruct
+    void initImageCache() {
+        // Large images are costly to keep, so the cache is bounded by total bytes as well as entries
+        imageCache = new BoundedCache<>(imageCacheMaxEntries, imageCacheMaxBytes, image -> image.length);
+    }
+    
+    @PostConstruct
+    void startBulkWorkers() {
+        int threads = bulkParallelism > 0 ? bulkParallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        bulkExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "barcode-bulk-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    void stopBulkWorkers() {
+        bulkExecutor.shutdownNow();
+    }
     
     public String generateBarcode(String productName) {
-        // Generate a unique barcode based on product name and timestamp
-        String timestamp = String.valueOf(System.currentTimeMillis()).substring(8); // Last 6 digits
-        String productCode = productName.replaceAll("\\s+", "").toUpperCase().substring(0, Math.min(3, productName.length()));
-        String randomNum = String.format("%03d", random.nextInt(1000));
+        // Up to three letters of the product name for readability; uniqueness comes from the fixed-width id
+        StringBuilder productCode = new StringBuilder(3);
+        for (int i = 0; i < productName.length() && productCode.length() < 3; i++) {
+            char c = Character.toUpperCase(productName.charAt(i));
+            if ((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                productCode.append(c);
+            }
+        }
         
-        return productCode + timestamp + randomNum;
+        return productCode + barcodeIdGenerator.nextCode();
     }
     
     public BitMatrix generateBarcodeMatrix(String barcodeText) throws WriterException {
+        return generateBarcodeMatrix(barcodeText, defaultWidth, defaultHeight);
+    }
+    
+    public BitMatrix generateBarcodeMatrix(String barcodeText, int width, int height) throws WriterException {
         Code128Writer writer = new Code128Writer();
         Map<EncodeHintType, Object> hints = new HashMap<>();
         hints.put(EncodeHintType.MARGIN, 1);
         
-        return writer.encode(barcodeText, BarcodeFormat.CODE_128, 300, 100, hints);
+        return writer.encode(barcodeText, BarcodeFormat.CODE_128, width, height, hints);
     }
     
     public String generateBarcodeImage(String barcodeText) {
         try {
-            BitMatrix bitMatrix = generateBarcodeMatrix(barcodeText);
-            // Convert BitMatrix to base64 image string
-            // This is a simplified version - in production you'd convert to actual image
-            return "barcode_" + barcodeText + "_" + System.currentTimeMillis();
-        } catch (WriterException e) {
+            // Encoding up front rejects text Code128 cannot represent; the image itself is served by URL
+            generateBarcodeMatrix(barcodeText);
+            return IMAGE_PATH + barcodeText;
+        } catch (WriterException | IllegalArgumentException e) {
             log.error("Error generating barcode: {}", e.getMessage());
             throw new RuntimeException("Failed to generate barcode", e);
         }
     }
     
+    /**
+     * Generates barcodes for every product name on the bulk worker pool and
+     * hands each result to the sink in input order. At most one window of
+     * items is in flight, so memory stays bounded however long the list is.
+     *
+     * @return the number of names that produced a barcode
+     */
+    public int generateBulk(List<String> productNames, Consumer<Map<String, Object>> sink) {
+        Deque<CompletableFuture<Map<String, Object>>> inFlight = new ArrayDeque<>();
+        Iterator<String> names = productNames.iterator();
+        int successful = 0;
+        
+        try {
+            while (inFlight.size() < bulkWindowSize && names.hasNext()) {
+                String productName = names.next();
+                inFlight.add(CompletableFuture.supplyAsync(() -> generateBulkItem(productName), bulkExecutor));
+            }
+            
+            while (!inFlight.isEmpty()) {
+                Map<String, Object> result = inFlight.poll().join();
+                if (names.hasNext()) {
+                    String productName = names.next();
+                    inFlight.add(CompletableFuture.supplyAsync(() -> generateBulkItem(productName), bulkExecutor));
+                }
+                
+                if (Boolean.TRUE.equals(result.get("success"))) {
+                    successful++;
+                }
+                sink.accept(result);
+            }
+        } finally {
+            // The sink may fail part-way (e.g. the client went away); drop whatever is still queued
+            inFlight.forEach(future -> future.cancel(false));
+        }
+        
+        return successful;
+    }
+    
+    private Map<String, Object> generateBulkItem(String productName) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("productName", productName);
+        try {
+            String barcode = generateBarcode(productName);
+            String barcodeImage = generateBarcodeImage(barcode);
+            
+            result.put("barcode", barcode);
+            result.put("barcodeImage", barcodeImage);
+            result.put("success", true);
+        } catch (Exception e) {
+            result.put("error", e.getMessage());
+            result.put("success", false);
+        }
+        return result;
+    }
+    
+    public byte[] renderBarcodeImage(String barcodeText, ImageFormat format, Integer width, Integer height) {
+        int imageWidth = clamp(width == null ? defaultWidth : width);
+        int imageHeight = clamp(height == null ? defaultHeight : height);
+        ImageKey key = new ImageKey(barcodeText, format, imageWidth, imageHeight);
+        
+        byte[] image = imageCache.get(key);
+        if (image != null) {
+            return image;
+        }
+        
+        try {
+            BitMatrix bitMatrix = generateBarcodeMatrix(barcodeText, imageWidth, imageHeight);
+            image = format == ImageFormat.SVG ? toSvg(bitMatrix) : toPng(bitMatrix);
+        } catch (WriterException | IOException e) {
+            log.error("Error rendering barcode image: {}", e.getMessage());
+            throw new RuntimeException("Failed to render barcode image", e);
+        }
+        
+        imageCache.put(key, image);
+        return image;
+    }
+    
+    public Map<String, Object> getImageCacheStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", imageCache.size());
+        stats.put("maxEntries", imageCacheMaxEntries);
+        stats.put("bytes", imageCache.weight());
+        stats.put("maxBytes", imageCacheMaxBytes);
+        stats.put("hits", imageCache.getHits());
+        stats.put("misses", imageCache.getMisses());
+        return stats;
+    }
+    
+    private byte[] toPng(BitMatrix bitMatrix) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        MatrixToImageWriter.writeToStream(bitMatrix, "PNG", outputStream);
+        return outputStream.toByteArray();
+    }
+    
+    private byte[] toSvg(BitMatrix bitMatrix) {
+        int width = bitMatrix.getWidth();
+        int height = bitMatrix.getHeight();
+        StringBuilder svg = new StringBuilder(4096)
+                .append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(width)
+                .append("\" height=\"").append(height)
+                .append("\" viewBox=\"0 0 ").append(width).append(' ').append(height)
+                .append("\" shape-rendering=\"crispEdges\">")
+                .append("<rect width=\"100%\" height=\"100%\" fill=\"#fff\"/><path fill=\"#000\" d=\"");
+        
+        // Every row of a linear barcode is identical, so one full-height rectangle per bar is enough
+        int x = 0;
+        while (x < width) {
+            if (!bitMatrix.get(x, 0)) {
+                x++;
+                continue;
+            }
+            int start = x;
+            while (x < width && bitMatrix.get(x, 0)) {
+                x++;
+            }
+            svg.append('M').append(start).append(" 0h").append(x - start).append('v').append(height)
+                    .append('h').append(start - x).append('z');
+        }
+        
+        svg.append("\"/></svg>");
+        return svg.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private int clamp(int dimension) {
+        return Math.max(MIN_IMAGE_DIMENSION, Math.min(MAX_IMAGE_DIMENSION, dimension));
+    }
+    
     public boolean validateBarcode(String barcode) {
         // Basic validation - check if barcode follows expected format
         return barcode != null && barcode.length() >= 6 && barcode.matches("^[A-Z0-9]+$");
     }
+    
+    public enum ImageFormat {
+        PNG("image/png"),
+        SVG("image/svg+xml");
+        
+        private final String mediaType;
+        
+        ImageFormat(String mediaType) {
+            this.mediaType = mediaType;
+        }
+        
+        public String getMediaType() {
+            return mediaType;
+        }
+    }
+    
+    private record ImageKey(String barcode, ImageFormat format, int width, int height) {
+    }
 } 
\ No newline at end of file
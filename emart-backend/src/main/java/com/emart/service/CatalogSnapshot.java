@@ -0,0 +1,160 @@
+package com.emart.service;
+
+import com.emart.model.Product;
+import com.emart.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory copy of the approved catalog backing the public storefront
+ * listings. Each approved product is kept as its serialized JSON, updated
+ * from product change events, and the listing bodies are assembled from
+ * those bytes on the first read after a change. Reads in between return the
+ * same bytes and ETag without touching Mongo.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogSnapshot implements ProductChangeListener {
+
+    private static final byte[] OPEN = "[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SEPARATOR = ",".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] CLOSE = "]".getBytes(StandardCharsets.UTF_8);
+
+    private final ProductRepository productRepository;
+    private final ObjectMapper objectMapper;
+
+    // Approved products by id; ObjectId order keeps the listing in creation order like the Mongo query did.
+    // Replaced wholesale by rebuild; changes go through the synchronized methods so none are lost to a rebuild
+    private volatile Map<String, Entry> entries = new ConcurrentSkipListMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final Map<View, AtomicReference<Listing>> listings = Map.of(
+            View.APPROVED, new AtomicReference<>(),
+            View.AVAILABLE, new AtomicReference<>());
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        List<Product> approvedProducts = productRepository.findByStatus(Product.ProductStatus.APPROVED);
+
+        // Readers keep the old map until the new one is complete
+        Map<String, Entry> rebuilt = new ConcurrentSkipListMap<>();
+        approvedProducts.forEach(product -> rebuilt.put(product.getId(), toEntry(product)));
+        entries = rebuilt;
+        version.incrementAndGet();
+
+        log.info("Catalog snapshot built with {} approved products", rebuilt.size());
+    }
+
+    @Override
+    public void onProductSaved(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+
+        if (product.getStatus() == Product.ProductStatus.APPROVED) {
+            Entry entry = toEntry(product);
+            synchronized (this) {
+                entries.put(product.getId(), entry);
+                version.incrementAndGet();
+            }
+        } else {
+            remove(product.getId());
+        }
+    }
+
+    @Override
+    public void onProductDeleted(Product product) {
+        remove(product.getId());
+    }
+
+    public Listing getListing(View view) {
+        AtomicReference<Listing> cached = listings.get(view);
+        long currentVersion = version.get();
+
+        Listing listing = cached.get();
+        if (listing != null && listing.version() == currentVersion) {
+            return listing;
+        }
+
+        synchronized (cached) {
+            listing = cached.get();
+            if (listing == null || listing.version() != version.get()) {
+                listing = assemble(view, version.get());
+                cached.set(listing);
+            }
+            return listing;
+        }
+    }
+
+    private synchronized void remove(String productId) {
+        // Not in the catalog before or after, nothing to invalidate
+        if (entries.remove(productId) != null) {
+            version.incrementAndGet();
+        }
+    }
+
+    private Listing assemble(View view, long listingVersion) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes(OPEN);
+
+        int count = 0;
+        for (Entry entry : entries.values()) {
+            if (view == View.AVAILABLE && !entry.inStock()) {
+                continue;
+            }
+            if (count++ > 0) {
+                body.writeBytes(SEPARATOR);
+            }
+            body.writeBytes(entry.json());
+        }
+        body.writeBytes(CLOSE);
+
+        byte[] bytes = body.toByteArray();
+        return new Listing(listingVersion, bytes, "\"" + contentHash(bytes) + "\"", count);
+    }
+
+    private Entry toEntry(Product product) {
+        try {
+            return new Entry(objectMapper.writeValueAsBytes(product),
+                    product.getQuantity() != null && product.getQuantity() > 0);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String contentHash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public enum View {
+        APPROVED, AVAILABLE
+    }
+
+    public record Listing(long version, byte[] body, String eTag, int size) {
+    }
+
+    private record Entry(byte[] json, boolean inStock) {
+    }
+}
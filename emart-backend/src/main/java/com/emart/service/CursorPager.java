@@ -0,0 +1,57 @@
+package com.emart.service;
+
+import com.emart.util.CursorPage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keyset pagination over _id. Each page is an index range scan that starts
+ * right after the previous page's last id, so the cost of a page does not
+ * grow with how deep into the collection it is.
+ */
+@Component
+@RequiredArgsConstructor
+public class CursorPager {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${app.pagination.default-limit:50}")
+    private int defaultLimit;
+
+    @Value("${app.pagination.max-limit:500}")
+    private int maxLimit;
+
+    public <T> CursorPage<T> page(Class<T> type, Function<T, String> idOf, String cursor, Integer limit) {
+        return page(type, idOf, null, cursor, limit);
+    }
+
+    public <T> CursorPage<T> page(Class<T> type, Function<T, String> idOf, Criteria filter, String cursor, Integer limit) {
+        int pageSize = limit == null ? defaultLimit : Math.max(1, Math.min(limit, maxLimit));
+
+        Criteria criteria = filter != null ? filter : new Criteria();
+        if (cursor != null && !cursor.isBlank()) {
+            criteria = new Criteria().andOperator(criteria, Criteria.where("_id").gt(CursorPage.decodeCursor(cursor)));
+        }
+
+        // Fetch one extra document to know whether another page follows
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(pageSize + 1);
+        List<T> items = mongoTemplate.find(query, type);
+
+        String nextCursor = null;
+        if (items.size() > pageSize) {
+            items = items.subList(0, pageSize);
+            nextCursor = CursorPage.encodeCursor(idOf.apply(items.get(pageSize - 1)));
+        }
+        return new CursorPage<>(items, nextCursor, pageSize);
+    }
+}
@@ -0,0 +1,261 @@
+package com.emart.service;
+
+import com.emart.model.EmailMessage;
+import com.emart.repository.EmailOutboxRepository;
+import com.emart.util.TokenBucket;
+import jakarta.annotation.PostConstruct;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Drains the email outbox. Each run claims a batch of due messages under a
+ * lease, sends them over as few SMTP connections as possible (one per
+ * {@code messages-per-connection} chunk) and records the outcome per message.
+ * A token bucket caps the overall send rate; failures are retried with
+ * exponential backoff and dead-lettered after {@code max-attempts}.
+ *
+ * <p>Only {@link JavaMailSender} is used, so pointing spring.mail at a local
+ * SMTP stand-in is enough to exercise the dispatcher end to end.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailDispatcher {
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final JavaMailSender mailSender;
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${spring.mail.username}")
+    private String fromEmail;
+
+    @Value("${app.email.dispatcher.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.email.dispatcher.messages-per-connection:50}")
+    private int messagesPerConnection;
+
+    @Value("${app.email.dispatcher.rate-limit.capacity:20}")
+    private long rateLimitCapacity;
+
+    @Value("${app.email.dispatcher.rate-limit.per-second:5}")
+    private double rateLimitPerSecond;
+
+    @Value("${app.email.dispatcher.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${app.email.dispatcher.retry-delay-ms:30000}")
+    private long retryDelayMs;
+
+    @Value("${app.email.dispatcher.max-retry-delay-ms:3600000}")
+    private long maxRetryDelayMs;
+
+    @Value("${app.email.dispatcher.lease-ms:120000}")
+    private long leaseMs;
+
+    private TokenBucket rateLimiter;
+
+    @PostConstruct
+    void initRateLimiter() {
+        rateLimiter = new TokenBucket(rateLimitCapacity, rateLimitPerSecond);
+    }
+
+    @Scheduled(fixedDelayString = "${app.email.dispatcher.poll-interval-ms:1000}")
+    public void dispatch() {
+        int permits = rateLimiter.tryAcquireUpTo(batchSize);
+        if (permits == 0) {
+            return;
+        }
+
+        List<EmailMessage> batch = claim(permits);
+        rateLimiter.refund(permits - batch.size());
+
+        for (int from = 0; from < batch.size(); from += messagesPerConnection) {
+            send(batch.subList(from, Math.min(from + messagesPerConnection, batch.size())));
+        }
+    }
+
+    public Map<EmailMessage.Status, Long> countByStatus() {
+        Map<EmailMessage.Status, Long> counts = new EnumMap<>(EmailMessage.Status.class);
+        for (EmailMessage.Status status : EmailMessage.Status.values()) {
+            counts.put(status, emailOutboxRepository.countByStatus(status));
+        }
+        return counts;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("byStatus", countByStatus());
+        stats.put("availableTokens", rateLimiter.available());
+        stats.put("ratePerSecond", rateLimitPerSecond);
+        return stats;
+    }
+
+    /**
+     * Puts dead-lettered messages back in the queue with a fresh attempt count.
+     */
+    public long requeueDeadLetters() {
+        LocalDateTime now = LocalDateTime.now();
+        return mongoTemplate.updateMulti(
+                Query.query(Criteria.where("status").is(EmailMessage.Status.DEAD)),
+                new Update()
+                        .set("status", EmailMessage.Status.PENDING)
+                        .set("attempts", 0)
+                        .set("nextAttemptAt", now)
+                        .set("updatedAt", now),
+                EmailMessage.class).getModifiedCount();
+    }
+
+    private List<EmailMessage> claim(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        Query due = Query.query(dueCriteria(now))
+                .with(Sort.by("nextAttemptAt"))
+                .limit(limit);
+        due.fields().include("_id");
+
+        List<String> ids = mongoTemplate.find(due, EmailMessage.class).stream()
+                .map(EmailMessage::getId)
+                .toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        // Claim the whole batch in one write; the lease owner tells us which ones we won
+        String leaseOwner = UUID.randomUUID().toString();
+        mongoTemplate.updateMulti(
+                Query.query(new Criteria().andOperator(Criteria.where("_id").in(ids), dueCriteria(now))),
+                new Update()
+                        .set("status", EmailMessage.Status.SENDING)
+                        .set("leaseOwner", leaseOwner)
+                        .set("leaseExpiresAt", now.plus(Duration.ofMillis(leaseMs)))
+                        .set("updatedAt", now),
+                EmailMessage.class);
+
+        return mongoTemplate.find(Query.query(Criteria.where("leaseOwner").is(leaseOwner)
+                .and("status").is(EmailMessage.Status.SENDING)), EmailMessage.class);
+    }
+
+    private void send(List<EmailMessage> messages) {
+        Map<MimeMessage, EmailMessage> outgoing = new IdentityHashMap<>();
+        for (EmailMessage message : messages) {
+            try {
+                outgoing.put(toMimeMessage(message), message);
+            } catch (MessagingException e) {
+                recordFailure(message, e);
+            }
+        }
+        if (outgoing.isEmpty()) {
+            return;
+        }
+
+        Map<Object, Exception> failures = new IdentityHashMap<>();
+        try {
+            // JavaMailSenderImpl sends the whole array over a single connection
+            mailSender.send(outgoing.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                outgoing.keySet().forEach(mailMessage -> failures.put(mailMessage, e));
+            } else {
+                failures.putAll(e.getFailedMessages());
+            }
+        } catch (Exception e) {
+            outgoing.keySet().forEach(mailMessage -> failures.put(mailMessage, e));
+        }
+
+        List<String> sent = new ArrayList<>();
+        outgoing.forEach((mailMessage, message) -> {
+            Exception failure = failures.get(mailMessage);
+            if (failure == null) {
+                sent.add(message.getId());
+            } else {
+                recordFailure(message, failure);
+            }
+        });
+
+        if (!sent.isEmpty()) {
+            LocalDateTime now = LocalDateTime.now();
+            mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("_id").in(sent)),
+                    new Update()
+                            .set("status", EmailMessage.Status.SENT)
+                            .set("sentAt", now)
+                            .set("updatedAt", now)
+                            .unset("leaseOwner")
+                            .unset("leaseExpiresAt")
+                            .unset("lastError"),
+                    EmailMessage.class);
+            log.info("Sent {} emails", sent.size());
+        }
+    }
+
+    private MimeMessage toMimeMessage(EmailMessage message) throws MessagingException {
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        boolean multipart = message.getHtmlBody() != null;
+
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, multipart, "UTF-8");
+        helper.setFrom(fromEmail);
+        helper.setTo(message.getTo());
+        helper.setSubject(message.getSubject());
+        if (multipart) {
+            // multipart/alternative: clients that can't show HTML fall back to the text part
+            helper.setText(message.getBody(), message.getHtmlBody());
+        } else {
+            helper.setText(message.getBody());
+        }
+        return mimeMessage;
+    }
+
+    private void recordFailure(EmailMessage message, Exception e) {
+        int attempts = message.getAttempts() + 1;
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+                .set("attempts", attempts)
+                .set("lastError", e.getMessage())
+                .set("updatedAt", now)
+                .unset("leaseOwner")
+                .unset("leaseExpiresAt");
+
+        if (attempts >= maxAttempts) {
+            update.set("status", EmailMessage.Status.DEAD);
+            log.error("Giving up on email {} to {} after {} attempts: {}",
+                    message.getId(), message.getTo(), attempts, e.getMessage());
+        } else {
+            long delay = Math.min(retryDelayMs << Math.min(attempts - 1, 16), maxRetryDelayMs);
+            update.set("status", EmailMessage.Status.PENDING)
+                    .set("nextAttemptAt", now.plus(Duration.ofMillis(delay)));
+            log.warn("Failed to send email {} to {} (attempt {}): {}",
+                    message.getId(), message.getTo(), attempts, e.getMessage());
+        }
+
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(message.getId())), update, EmailMessage.class);
+    }
+
+    private Criteria dueCriteria(LocalDateTime now) {
+        return new Criteria().orOperator(
+                Criteria.where("status").is(EmailMessage.Status.PENDING).and("nextAttemptAt").lte(now),
+                Criteria.where("status").is(EmailMessage.Status.SENDING).and("leaseExpiresAt").lt(now));
+    }
+}
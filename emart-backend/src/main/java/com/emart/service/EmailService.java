@@ -1,21 +1,30 @@
 package com.emart.service;
 
+import com.emart.model.EmailMessage;
+import com.emart.model.Product;
+import com.emart.repository.EmailOutboxRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders notification emails from their templates and queues them in the
+ * email outbox; nothing here talks to SMTP. {@link EmailDispatcher} delivers the queued messages.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class EmailService {
     
-    private final JavaMailSender mailSender;
-    
-    @Value("${spring.mail.username}")
-    private String fromEmail;
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailTemplateService emailTemplateService;
     
     @Value("${app.email.enabled:true}")
     private boolean emailEnabled;
@@ -26,17 +35,9 @@ public class EmailService {
             return;
         }
         
-        String subject = "Product Approval Notification";
-        String message = String.format(
-            "Dear %s,\n\n" +
-            "Your product '%s' has been approved and is now available in our inventory.\n" +
-            "You will be notified when the goods arrive from the warehouse to the shop.\n\n" +
-            "Best regards,\n" +
-            "EMart Team",
-            customerName, productName
-        );
-        
-        sendEmail(customerEmail, subject, message);
+        enqueue(customerEmail, EmailTemplateService.Template.PRODUCT_APPROVAL, values(
+                "name", customerName,
+                "productName", productName));
     }
     
     public void sendProductRejectionNotification(String supplierEmail, String supplierName, String productName, String reason) {
@@ -45,18 +46,10 @@ public class EmailService {
             return;
         }
         
-        String subject = "Product Rejection Notification";
-        String message = String.format(
-            "Dear %s,\n\n" +
-            "Your product '%s' has been rejected for the following reason:\n" +
-            "%s\n\n" +
-            "Please review and resubmit if necessary.\n\n" +
-            "Best regards,\n" +
-            "EMart Team",
-            supplierName, productName, reason
-        );
-        
-        sendEmail(supplierEmail, subject, message);
+        enqueue(supplierEmail, EmailTemplateService.Template.PRODUCT_REJECTION, values(
+                "name", supplierName,
+                "productName", productName,
+                "reason", reason));
     }
     
     public void sendOrderConfirmation(String customerEmail, String customerName, String orderNumber, String total) {
@@ -65,19 +58,11 @@ public class EmailService {
             return;
         }
         
-        String subject = "Order Confirmation - " + orderNumber;
-        String message = String.format(
-            "Dear %s,\n\n" +
-            "Thank you for your order! Your order has been confirmed.\n\n" +
-            "Order Number: %s\n" +
-            "Total Amount: $%s\n\n" +
-            "We will notify you when your order is ready for pickup.\n\n" +
-            "Best regards,\n" +
-            "EMart Team",
-            customerName, orderNumber, total
-        );
-        
-        sendEmail(customerEmail, subject, message);
+        // The order pipeline may retry this stage, so one confirmation per order number
+        enqueue(customerEmail, EmailTemplateService.Template.ORDER_CONFIRMATION, values(
+                "name", customerName,
+                "orderNumber", orderNumber,
+                "total", total), "order-confirmation:" + orderNumber);
     }
     
     public void sendPaymentConfirmation(String customerEmail, String customerName, String orderNumber, String amount) {
@@ -86,19 +71,10 @@ public class EmailService {
             return;
         }
         
-        String subject = "Payment Confirmation - " + orderNumber;
-        String message = String.format(
-            "Dear %s,\n\n" +
-            "Your payment has been processed successfully.\n\n" +
-            "Order Number: %s\n" +
-            "Amount Paid: $%s\n\n" +
-            "Thank you for your business!\n\n" +
-            "Best regards,\n" +
-            "EMart Team",
-            customerName, orderNumber, amount
-        );
-        
-        sendEmail(customerEmail, subject, message);
+        enqueue(customerEmail, EmailTemplateService.Template.PAYMENT_CONFIRMATION, values(
+                "name", customerName,
+                "orderNumber", orderNumber,
+                "amount", amount));
     }
     
     public void sendInvoiceNotification(String customerEmail, String customerName, String invoiceNumber, String amount) {
@@ -107,19 +83,10 @@ public class EmailService {
             return;
         }
         
-        String subject = "Invoice Generated - " + invoiceNumber;
-        String message = String.format(
-            "Dear %s,\n\n" +
-            "An invoice has been generated for your order.\n\n" +
-            "Invoice Number: %s\n" +
-            "Amount: $%s\n\n" +
-            "You can download the invoice from your account dashboard.\n\n" +
-            "Best regards,\n" +
-            "EMart Team",
-            customerName, invoiceNumber, amount
-        );
-        
-        sendEmail(customerEmail, subject, message);
+        enqueue(customerEmail, EmailTemplateService.Template.INVOICE_NOTIFICATION, values(
+                "name", customerName,
+                "invoiceNumber", invoiceNumber,
+                "amount", amount));
     }
     
     public void sendLowStockAlert(String adminEmail, String productName, int currentStock) {
@@ -128,19 +95,9 @@ public class EmailService {
             return;
         }
         
-        String subject = "Low Stock Alert";
-        String message = String.format(
-            "Dear Admin,\n\n" +
-            "The following product is running low on stock:\n\n" +
-            "Product: %s\n" +
-            "Current Stock: %d\n\n" +
-            "Please reorder soon to avoid stockouts.\n\n" +
-            "Best regards,\n" +
-            "EMart System",
-            productName, currentStock
-        );
-        
-        sendEmail(adminEmail, subject, message);
+        enqueue(adminEmail, EmailTemplateService.Template.LOW_STOCK_ALERT, values(
+                "productName", productName,
+                "currentStock", currentStock));
     }
     
     public void sendExpiryAlert(String adminEmail, String productName, String expiryDate) {
@@ -149,19 +106,57 @@ public class EmailService {
             return;
         }
         
-        String subject = "Product Expiry Alert";
-        String message = String.format(
-            "Dear Admin,\n\n" +
-            "The following product is approaching its expiry date:\n\n" +
-            "Product: %s\n" +
-            "Expiry Date: %s\n\n" +
-            "Please take appropriate action.\n\n" +
-            "Best regards,\n" +
-            "EMart System",
-            productName, expiryDate
-        );
+        enqueue(adminEmail, EmailTemplateService.Template.EXPIRY_ALERT, values(
+                "productName", productName,
+                "expiryDate", expiryDate));
+    }
+    
+    /**
+     * One email listing every product that went low on stock or entered the
+     * expiry window since the previous digest.
+     */
+    public void sendInventoryDigest(String adminEmail, String adminName, List<Product> lowStockProducts,
+                                    List<Product> expiringProducts, int threshold, int expiryDays,
+                                    String since, String dedupKey) {
+        if (!emailEnabled) {
+            log.info("Email disabled. Would send inventory digest to: {}", adminEmail);
+            return;
+        }
         
-        sendEmail(adminEmail, subject, message);
+        EmailTemplateService.RenderedFragment lowStockItems = emailTemplateService.renderFragments(
+                EmailTemplateService.Fragment.LOW_STOCK_ROW,
+                lowStockProducts.stream()
+                        .map(product -> values(
+                                "productName", product.getName(),
+                                "barcode", product.getBarcode(),
+                                "currentStock", product.getQuantity()))
+                        .toList());
+        EmailTemplateService.RenderedFragment expiringItems = emailTemplateService.renderFragments(
+                EmailTemplateService.Fragment.EXPIRY_ROW,
+                expiringProducts.stream()
+                        .map(product -> values(
+                                "productName", product.getName(),
+                                "barcode", product.getBarcode(),
+                                "expiryDate", product.getBestBefore()))
+                        .toList());
+        
+        Map<String, Object> values = values(
+                "name", adminName,
+                "since", since,
+                "threshold", threshold,
+                "expiryDays", expiryDays,
+                "lowStockCount", lowStockProducts.size(),
+                "expiringCount", expiringProducts.size());
+        
+        Map<String, Object> htmlValues = new HashMap<>(values);
+        values.put("lowStockItems", lowStockItems.text());
+        values.put("expiringItems", expiringItems.text());
+        htmlValues.put("lowStockItems", lowStockItems.html());
+        htmlValues.put("expiringItems", expiringItems.html());
+        
+        EmailTemplateService.RenderedEmail email = emailTemplateService.render(
+                EmailTemplateService.Template.INVENTORY_DIGEST, values, htmlValues);
+        enqueue(adminEmail, email.subject(), email.text(), email.html(), dedupKey);
     }
     
     public void sendWelcomeEmail(String userEmail, String userName, String userRole) {
@@ -170,37 +165,53 @@ public class EmailService {
             return;
         }
         
-        String subject = "Welcome to EMart";
-        String message = String.format(
-            "Dear %s,\n\n" +
-            "Welcome to EMart! Your account has been successfully created.\n\n" +
-            "Role: %s\n" +
-            "Email: %s\n\n" +
-            "You can now log in to your account and start using our services.\n\n" +
-            "Best regards,\n" +
-            "EMart Team",
-            userName, userRole, userEmail
-        );
-        
-        sendEmail(userEmail, subject, message);
+        enqueue(userEmail, EmailTemplateService.Template.WELCOME, values(
+                "name", userName,
+                "role", userRole,
+                "email", userEmail));
     }
     
-    private void sendEmail(String to, String subject, String message) {
+    private void enqueue(String to, EmailTemplateService.Template template, Map<String, Object> values) {
+        enqueue(to, template, values, null);
+    }
+    
+    private void enqueue(String to, EmailTemplateService.Template template, Map<String, Object> values, String dedupKey) {
+        EmailTemplateService.RenderedEmail email = emailTemplateService.render(template, values);
+        enqueue(to, email.subject(), email.text(), email.html(), dedupKey);
+    }
+    
+    private void enqueue(String to, String subject, String text, String html, String dedupKey) {
+        LocalDateTime now = LocalDateTime.now();
+        
+        EmailMessage email = new EmailMessage();
+        email.setDedupKey(dedupKey);
+        email.setTo(to);
+        email.setSubject(subject);
+        email.setBody(text);
+        email.setHtmlBody(html);
+        email.setStatus(EmailMessage.Status.PENDING);
+        email.setNextAttemptAt(now);
+        email.setCreatedAt(now);
+        email.setUpdatedAt(now);
+        
         try {
-            SimpleMailMessage mailMessage = new SimpleMailMessage();
-            mailMessage.setFrom(fromEmail);
-            mailMessage.setTo(to);
-            mailMessage.setSubject(subject);
-            mailMessage.setText(message);
-            
-            mailSender.send(mailMessage);
-            log.info("Email sent successfully to: {}", to);
-        } catch (Exception e) {
-            log.error("Failed to send email to {}: {}", to, e.getMessage());
+            emailOutboxRepository.save(email);
+            log.debug("Queued email to: {}", to);
+        } catch (DuplicateKeyException e) {
+            log.debug("Email {} already queued", dedupKey);
+        }
+    }
+    
+    // Template values may legitimately be null (e.g. no rejection reason), which Map.of rejects
+    private static Map<String, Object> values(Object... keysAndValues) {
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            values.put((String) keysAndValues[i], keysAndValues[i + 1]);
         }
+        return values;
     }
     
     public void sendCustomEmail(String to, String subject, String message) {
-        sendEmail(to, subject, message);
+        enqueue(to, subject, message, null, null);
     }
 } 
\ No newline at end of file
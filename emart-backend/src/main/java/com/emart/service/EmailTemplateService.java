@@ -0,0 +1,163 @@
+package com.emart.service;
+
+import com.emart.util.MessageTemplate;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads the email templates under classpath:templates/email once at startup
+ * and renders each message as a subject plus plain-text and HTML bodies.
+ * Every HTML body is wrapped in layout.html ahead of time.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailTemplateService {
+
+    private static final String TEMPLATE_LOCATION = "classpath:templates/email/";
+    private static final String TEAM_SIGNATURE = "EMart Team";
+    private static final String SYSTEM_SIGNATURE = "EMart System";
+
+    private final ResourceLoader resourceLoader;
+
+    private final Map<Template, CompiledEmail> templates = new EnumMap<>(Template.class);
+    private final Map<Fragment, CompiledFragment> fragments = new EnumMap<>(Fragment.class);
+
+    @PostConstruct
+    void compileTemplates() throws IOException {
+        MessageTemplate layout = MessageTemplate.html(load("layout.html"));
+
+        for (Template template : Template.values()) {
+            MessageTemplate text = MessageTemplate.text(load(template.getName() + ".txt"));
+            MessageTemplate html = layout
+                    .inline("content", MessageTemplate.html(load(template.getName() + ".html")))
+                    .inline("signature", template.getSignature());
+
+            // Both bodies must be fillable from the same values
+            if (!text.variables().containsAll(html.variables())) {
+                throw new IllegalStateException("Email template " + template.getName()
+                        + " uses HTML variables missing from its text version: " + html.variables());
+            }
+
+            templates.put(template, new CompiledEmail(MessageTemplate.text(template.getSubject()), text, html));
+        }
+
+        for (Fragment fragment : Fragment.values()) {
+            fragments.put(fragment, new CompiledFragment(
+                    MessageTemplate.text(load(fragment.getName() + ".txt")),
+                    MessageTemplate.html(load(fragment.getName() + ".html"))));
+        }
+
+        log.info("Compiled {} email templates and {} fragments", templates.size(), fragments.size());
+    }
+
+    public RenderedEmail render(Template template, Map<String, ?> values) {
+        return render(template, values, values);
+    }
+
+    /**
+     * Renders with separate values for the HTML body, for templates whose
+     * triple-brace placeholders take different markup in each version.
+     */
+    public RenderedEmail render(Template template, Map<String, ?> values, Map<String, ?> htmlValues) {
+        CompiledEmail compiled = templates.get(template);
+        return new RenderedEmail(
+                compiled.subject().render(values),
+                compiled.text().render(values),
+                compiled.html().render(htmlValues));
+    }
+
+    /**
+     * Renders a fragment once per item, e.g. the rows of a digest table, for
+     * insertion into a template's triple-brace placeholders.
+     */
+    public RenderedFragment renderFragments(Fragment fragment, List<? extends Map<String, ?>> items) {
+        CompiledFragment compiled = fragments.get(fragment);
+        StringBuilder text = new StringBuilder();
+        StringBuilder html = new StringBuilder();
+        for (Map<String, ?> item : items) {
+            compiled.text().renderTo(text, item);
+            compiled.html().renderTo(html, item);
+        }
+        return new RenderedFragment(text.toString(), html.toString());
+    }
+
+    private String load(String fileName) throws IOException {
+        try (InputStream inputStream = resourceLoader.getResource(TEMPLATE_LOCATION + fileName).getInputStream()) {
+            return StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8);
+        }
+    }
+
+    public enum Template {
+        PRODUCT_APPROVAL("product-approval", "Product Approval Notification", TEAM_SIGNATURE),
+        PRODUCT_REJECTION("product-rejection", "Product Rejection Notification", TEAM_SIGNATURE),
+        ORDER_CONFIRMATION("order-confirmation", "Order Confirmation - {{orderNumber}}", TEAM_SIGNATURE),
+        PAYMENT_CONFIRMATION("payment-confirmation", "Payment Confirmation - {{orderNumber}}", TEAM_SIGNATURE),
+        INVOICE_NOTIFICATION("invoice-notification", "Invoice Generated - {{invoiceNumber}}", TEAM_SIGNATURE),
+        LOW_STOCK_ALERT("low-stock-alert", "Low Stock Alert", SYSTEM_SIGNATURE),
+        EXPIRY_ALERT("expiry-alert", "Product Expiry Alert", SYSTEM_SIGNATURE),
+        INVENTORY_DIGEST("inventory-digest", "Inventory Alerts - {{lowStockCount}} low stock, {{expiringCount}} expiring",
+                SYSTEM_SIGNATURE),
+        WELCOME("welcome", "Welcome to EMart", TEAM_SIGNATURE);
+
+        private final String name;
+        private final String subject;
+        private final String signature;
+
+        Template(String name, String subject, String signature) {
+            this.name = name;
+            this.subject = subject;
+            this.signature = signature;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public String getSignature() {
+            return signature;
+        }
+    }
+
+    public enum Fragment {
+        LOW_STOCK_ROW("low-stock-row"),
+        EXPIRY_ROW("expiry-row");
+
+        private final String name;
+
+        Fragment(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public record RenderedEmail(String subject, String text, String html) {
+    }
+
+    public record RenderedFragment(String text, String html) {
+    }
+
+    private record CompiledFragment(MessageTemplate text, MessageTemplate html) {
+    }
+
+    private record CompiledEmail(MessageTemplate subject, MessageTemplate text, MessageTemplate html) {
+    }
+}
@@ -0,0 +1,137 @@
+package com.emart.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a collection to an output stream as CSV or NDJSON straight from a
+ * Mongo cursor, so an export holds one document in memory at a time no
+ * matter how many match.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+    
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    
+    public <T> void export(Class<T> type, String dateField, LocalDateTime startDate, LocalDateTime endDate,
+                           List<Column<T>> columns, Format format, boolean gzip, OutputStream outputStream) throws IOException {
+        Criteria criteria = new Criteria();
+        if (startDate != null || endDate != null) {
+            criteria = Criteria.where(dateField);
+            if (startDate != null) {
+                criteria = criteria.gte(startDate);
+            }
+            if (endDate != null) {
+                criteria = criteria.lte(endDate);
+            }
+        }
+        Query query = Query.query(criteria).with(Sort.by(Sort.Direction.ASC, "_id"));
+        
+        OutputStream target = gzip ? new GZIPOutputStream(outputStream, 64 * 1024) : outputStream;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 64 * 1024);
+        
+        if (format == Format.CSV) {
+            writeCsvRow(writer, columns.stream().map(Column::header).toList());
+        }
+        
+        try (Stream<T> documents = mongoTemplate.stream(query, type)) {
+            documents.forEach(document -> {
+                try {
+                    if (format == Format.CSV) {
+                        writeCsvRow(writer, columns.stream().map(column -> column.value().apply(document)).toList());
+                    } else {
+                        writer.write(objectMapper.writeValueAsString(document));
+                        writer.write('\n');
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        
+        writer.flush();
+        if (target instanceof GZIPOutputStream gzipStream) {
+            gzipStream.finish();
+        }
+    }
+    
+    private void writeCsvRow(Writer writer, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csvField(values.get(i)));
+        }
+        writer.write("\r\n");
+    }
+    
+    private String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        
+        // Text that a spreadsheet would evaluate as a formula is neutralised
+        if (value instanceof CharSequence && !text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+    
+    public record Column<T>(String header, Function<T, Object> value) {
+    }
+    
+    public enum Format {
+        CSV("text/csv", ".csv"),
+        NDJSON("application/x-ndjson", ".ndjson");
+        
+        private final String mediaType;
+        private final String extension;
+        
+        Format(String mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+        
+        public String getMediaType() {
+            return mediaType;
+        }
+        
+        public String getExtension() {
+            return extension;
+        }
+        
+        public static Format from(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported export format: " + value);
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.emart.service;
+
+import com.emart.model.Product;
+import com.emart.model.User;
+import com.emart.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends admins a periodic digest of listed products that went low on stock
+ * or entered the expiry window. Each run reads, in one indexed query, only the
+ * listed products updated since the previous run's watermark plus those inside
+ * the expiry window that were never alerted. Alerted products are flagged so
+ * they are not reported again; the low-stock flag is cleared once stock
+ * recovers. The flags are internal bookkeeping and not part of the product's
+ * JSON, so setting them does not go through the product change listeners.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryAlertService {
+
+    private static final String STATE_COLLECTION = "inventory_alert_state";
+    private static final String STATE_ID = "inventory-alerts";
+    private static final DateTimeFormatter SINCE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final List<Product.ProductStatus> LISTED_STATUSES =
+            List.of(Product.ProductStatus.APPROVED, Product.ProductStatus.OUT_OF_STOCK);
+
+    private final MongoTemplate mongoTemplate;
+    private final UserRepository userRepository;
+    private final EmailService emailService;
+
+    @Value("${app.inventory-alerts.low-stock-threshold:10}")
+    private int lowStockThreshold;
+
+    @Value("${app.inventory-alerts.expiry-days:7}")
+    private int expiryDays;
+
+    @Scheduled(cron = "${app.inventory-alerts.cron:0 0 7 * * *}")
+    public void scheduledRun() {
+        try {
+            run();
+        } catch (Exception e) {
+            log.error("Inventory alert run failed: {}", e.getMessage());
+        }
+    }
+
+    public synchronized Map<String, Object> run() {
+        LocalDateTime runStartedAt = LocalDateTime.now();
+        LocalDateTime watermark = loadWatermark();
+        LocalDate expiryHorizon = LocalDate.now().plusDays(expiryDays);
+
+        List<Product> lowStock = new ArrayList<>();
+        List<Product> expiring = new ArrayList<>();
+        List<String> recovered = new ArrayList<>();
+
+        for (Product product : mongoTemplate.find(candidates(watermark, expiryHorizon), Product.class)) {
+            boolean isLowStock = product.getQuantity() != null && product.getQuantity() <= lowStockThreshold;
+            if (isLowStock && product.getLowStockAlertedAt() == null) {
+                lowStock.add(product);
+            } else if (!isLowStock && product.getLowStockAlertedAt() != null) {
+                recovered.add(product.getId());
+            }
+
+            if (product.getExpiryAlertedAt() == null && product.getBestBefore() != null
+                    && !product.getBestBefore().isAfter(expiryHorizon)) {
+                expiring.add(product);
+            }
+        }
+
+        int digests = 0;
+        if (!lowStock.isEmpty() || !expiring.isEmpty()) {
+            digests = sendDigests(lowStock, expiring, watermark, runStartedAt);
+        }
+
+        markAlerted(lowStock, "lowStockAlertedAt", runStartedAt);
+        markAlerted(expiring, "expiryAlertedAt", runStartedAt);
+        if (!recovered.isEmpty()) {
+            mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(recovered)),
+                    new Update().unset("lowStockAlertedAt"), Product.class);
+        }
+
+        // Anything updated while this run was reading is picked up by the next one
+        saveWatermark(runStartedAt);
+
+        log.info("Inventory alerts: {} low stock, {} expiring, {} recovered, {} digests",
+                lowStock.size(), expiring.size(), recovered.size(), digests);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("since", watermark);
+        result.put("lowStock", lowStock.size());
+        result.put("expiring", expiring.size());
+        result.put("recovered", recovered.size());
+        result.put("digestsSent", digests);
+        return result;
+    }
+
+    private Query candidates(LocalDateTime watermark, LocalDate expiryHorizon) {
+        // First run has no watermark and looks at the whole catalog once
+        Criteria changed = watermark == null
+                ? new Criteria()
+                : Criteria.where("updatedAt").gt(watermark);
+        Criteria enteringExpiryWindow = Criteria.where("bestBefore").lte(expiryHorizon)
+                .and("expiryAlertedAt").is(null);
+
+        // Unlisted products (pending, rejected, expired) are never alerted, so they must not match either branch
+        Query query = Query.query(Criteria.where("status").in(LISTED_STATUSES)
+                .orOperator(changed, enteringExpiryWindow));
+        query.fields().include("name", "barcode", "quantity", "bestBefore", "status",
+                "lowStockAlertedAt", "expiryAlertedAt");
+        return query;
+    }
+
+    private int sendDigests(List<Product> lowStock, List<Product> expiring, LocalDateTime watermark,
+                            LocalDateTime runStartedAt) {
+        String since = watermark == null ? "the first run" : watermark.format(SINCE_FORMAT);
+        String window = runStartedAt.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+
+        int sent = 0;
+        for (User admin : userRepository.findEnabledByRole(User.UserRole.ADMIN)) {
+            if (admin.getEmail() == null) {
+                continue;
+            }
+            emailService.sendInventoryDigest(admin.getEmail(),
+                    admin.getFirstName() + " " + admin.getLastName(),
+                    lowStock, expiring, lowStockThreshold, expiryDays, since,
+                    "inventory-digest:" + admin.getId() + ":" + window);
+            sent++;
+        }
+        return sent;
+    }
+
+    private void markAlerted(List<Product> products, String field, LocalDateTime alertedAt) {
+        if (products.isEmpty()) {
+            return;
+        }
+        List<String> ids = products.stream().map(Product::getId).toList();
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(ids)),
+                new Update().set(field, alertedAt), Product.class);
+    }
+
+    private LocalDateTime loadWatermark() {
+        Document state = mongoTemplate.findById(STATE_ID, Document.class, STATE_COLLECTION);
+        Date watermark = state == null ? null : state.getDate("watermark");
+        return watermark == null ? null : LocalDateTime.ofInstant(watermark.toInstant(), ZoneId.systemDefault());
+    }
+
+    private void saveWatermark(LocalDateTime watermark) {
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(STATE_ID)),
+                new Update().set("watermark", watermark), STATE_COLLECTION);
+    }
+}
@@ -0,0 +1,104 @@
+package com.emart.service;
+
+import com.emart.model.Invoice;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.Cell;
+import com.itextpdf.layout.element.Paragraph;
+import com.itextpdf.layout.element.Table;
+import com.itextpdf.layout.properties.TextAlignment;
+import com.itextpdf.layout.properties.UnitValue;
+import org.springframework.stereotype.Component;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+
+@Component
+public class InvoicePdfRenderer {
+
+    // Bump whenever the layout changes so cached PDFs are regenerated
+    static final int LAYOUT_VERSION = 1;
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    public void render(Invoice invoice, OutputStream outputStream) {
+        try (Document document = new Document(new PdfDocument(new PdfWriter(outputStream)))) {
+            document.add(new Paragraph("EMart").setFontSize(12).setBold());
+            document.add(new Paragraph("INVOICE").setFontSize(20).setBold());
+
+            document.add(new Paragraph()
+                    .add("Invoice Number: " + text(invoice.getInvoiceNumber()) + "\n")
+                    .add("Order Number: " + text(invoice.getOrderNumber()) + "\n")
+                    .add("Invoice Date: " + format(invoice.getCreatedAt(), DATE_FORMAT) + "\n")
+                    .add("Due Date: " + format(invoice.getDueDate(), DATE_FORMAT) + "\n")
+                    .add("Status: " + text(invoice.getStatus())));
+
+            Paragraph billTo = new Paragraph()
+                    .add("Bill To:\n")
+                    .add(text(invoice.getCustomerName()) + "\n")
+                    .add(text(invoice.getCustomerEmail()));
+            if (invoice.getCustomerPhone() != null) {
+                billTo.add("\n" + invoice.getCustomerPhone());
+            }
+            if (invoice.getCustomerAddress() != null) {
+                billTo.add("\n" + invoice.getCustomerAddress());
+            }
+            document.add(billTo);
+
+            Table items = new Table(UnitValue.createPercentArray(new float[]{40, 20, 10, 15, 15}))
+                    .useAllAvailableWidth();
+            for (String header : new String[]{"Product", "Barcode", "Qty", "Unit Price", "Total"}) {
+                items.addHeaderCell(new Cell().add(new Paragraph(header).setBold()));
+            }
+            if (invoice.getItems() != null) {
+                for (Invoice.InvoiceItem item : invoice.getItems()) {
+                    items.addCell(text(item.getProductName()));
+                    items.addCell(text(item.getBarcode()));
+                    items.addCell(new Cell().add(new Paragraph(text(item.getQuantity())).setTextAlignment(TextAlignment.RIGHT)));
+                    items.addCell(new Cell().add(new Paragraph(money(item.getUnitPrice())).setTextAlignment(TextAlignment.RIGHT)));
+                    items.addCell(new Cell().add(new Paragraph(money(item.getTotalPrice())).setTextAlignment(TextAlignment.RIGHT)));
+                }
+            }
+            document.add(items);
+
+            document.add(new Paragraph()
+                    .add("Subtotal: " + money(invoice.getSubtotal()) + "\n")
+                    .add("Tax: " + money(invoice.getTax()) + "\n")
+                    .add("Total: " + money(invoice.getTotal()))
+                    .setTextAlignment(TextAlignment.RIGHT));
+
+            if (invoice.getPaidDate() != null || invoice.getTransactionId() != null) {
+                document.add(new Paragraph()
+                        .add("Paid: " + format(invoice.getPaidDate(), DATE_FORMAT) + "\n")
+                        .add("Payment Method: " + text(invoice.getPaymentMethod()) + "\n")
+                        .add("Transaction: " + text(invoice.getTransactionId())));
+            }
+
+            if (invoice.getSignedBy() != null) {
+                document.add(new Paragraph("Digitally signed by " + invoice.getSignedBy()
+                        + " on " + format(invoice.getSignedAt(), DATE_TIME_FORMAT)).setFontSize(9));
+            }
+
+            if (invoice.getNotes() != null) {
+                document.add(new Paragraph("Notes: " + invoice.getNotes()).setFontSize(9));
+            }
+        }
+    }
+
+    private String money(BigDecimal amount) {
+        return amount == null ? "-" : "$" + amount.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    private String format(TemporalAccessor value, DateTimeFormatter formatter) {
+        return value == null ? "-" : formatter.format(value);
+    }
+
+    private String text(Object value) {
+        return value == null ? "-" : value.toString();
+    }
+}
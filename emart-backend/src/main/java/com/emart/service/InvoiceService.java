@@ -5,16 +5,33 @@ import com.emart.model.Order;
 import com.emart.model.User;
 import com.emart.repository.InvoiceRepository;
 import com.emart.repository.UserRepository;
+import com.emart.util.CursorPage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,11 +39,43 @@ import java.util.stream.Collectors;
 @Slf4j
 public class InvoiceService {
     
+    private static final List<ExportService.Column<Invoice>> EXPORT_COLUMNS = List.of(
+            new ExportService.Column<>("id", Invoice::getId),
+            new ExportService.Column<>("invoiceNumber", Invoice::getInvoiceNumber),
+            new ExportService.Column<>("createdAt", Invoice::getCreatedAt),
+            new ExportService.Column<>("orderNumber", Invoice::getOrderNumber),
+            new ExportService.Column<>("customerId", Invoice::getCustomerId),
+            new ExportService.Column<>("customerName", Invoice::getCustomerName),
+            new ExportService.Column<>("customerEmail", Invoice::getCustomerEmail),
+            new ExportService.Column<>("subtotal", Invoice::getSubtotal),
+            new ExportService.Column<>("tax", Invoice::getTax),
+            new ExportService.Column<>("total", Invoice::getTotal),
+            new ExportService.Column<>("status", Invoice::getStatus),
+            new ExportService.Column<>("dueDate", Invoice::getDueDate),
+            new ExportService.Column<>("paidDate", Invoice::getPaidDate),
+            new ExportService.Column<>("paymentMethod", Invoice::getPaymentMethod),
+            new ExportService.Column<>("transactionId", Invoice::getTransactionId));
+    
     private final InvoiceRepository invoiceRepository;
     private final UserRepository userRepository;
     private final BarcodeService barcodeService;
+    private final InvoicePdfRenderer invoicePdfRenderer;
+    private final MongoTemplate mongoTemplate;
+    private final SequenceService sequenceService;
+    private final InvoiceSummaryService invoiceSummaryService;
+    private final CursorPager cursorPager;
+    private final ExportService exportService;
+    
+    @Value("${pdf.output.directory}")
+    private String pdfOutputDirectory;
     
     public Invoice generateInvoiceForOrder(Order order) {
+        // Post-processing may be retried, so an order only ever gets one invoice
+        Optional<Invoice> existing = invoiceRepository.findByOrderId(order.getId());
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        
         Invoice invoice = new Invoice();
         
         // Generate invoice number
@@ -60,7 +109,15 @@ public class InvoiceService {
         invoice.setCreatedAt(LocalDateTime.now());
         invoice.setUpdatedAt(LocalDateTime.now());
         
-        return invoiceRepository.save(invoice);
+        Invoice savedInvoice;
+        try {
+            savedInvoice = invoiceRepository.insert(invoice);
+        } catch (DuplicateKeyException e) {
+            // A concurrent retry for the same order got there first (order_id is unique)
+            return invoiceRepository.findByOrderId(order.getId()).orElseThrow(() -> e);
+        }
+        invoiceSummaryService.recordCreated(savedInvoice);
+        return savedInvoice;
     }
     
     public Invoice getInvoiceById(String invoiceId) {
@@ -90,16 +147,40 @@ public class InvoiceService {
         return invoiceRepository.findAll();
     }
     
+    /**
+     * Streams invoices with createdAt in the given range (either bound may be
+     * null) to the output stream as CSV or NDJSON.
+     */
+    public void exportInvoices(ExportService.Format format, LocalDateTime startDate, LocalDateTime endDate,
+                             boolean gzip, OutputStream outputStream) throws IOException {
+        exportService.export(Invoice.class, "createdAt", startDate, endDate, EXPORT_COLUMNS, format, gzip, outputStream);
+    }
+    
+    public CursorPage<Invoice> getInvoicesPage(String cursor, Integer limit) {
+        return cursorPager.page(Invoice.class, Invoice::getId, cursor, limit);
+    }
+    
     public List<Invoice> getOverdueInvoices() {
         return invoiceRepository.findOverdueInvoices(LocalDate.now());
     }
     
     public Invoice updateInvoiceStatus(String invoiceId, Invoice.InvoiceStatus status) {
-        Invoice invoice = getInvoiceById(invoiceId);
-        invoice.setStatus(status);
-        invoice.setUpdatedAt(LocalDateTime.now());
+        LocalDateTime now = LocalDateTime.now();
+        
+        // Swap the status atomically so the summary counters see the true previous state
+        Invoice invoice = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(invoiceId)),
+                new Update().set("status", status).set("updatedAt", now),
+                Invoice.class);
+        if (invoice == null) {
+            throw new RuntimeException("Invoice not found");
+        }
         
-        return invoiceRepository.save(invoice);
+        invoiceSummaryService.recordStatusChange(invoice, invoice.getStatus(), status);
+        
+        invoice.setStatus(status);
+        invoice.setUpdatedAt(now);
+        return invoice;
     }
     
     public Invoice addDigitalSignature(String invoiceId, String adminId, String signatureData) {
@@ -113,19 +194,121 @@ public class InvoiceService {
             throw new RuntimeException("User is not an admin");
         }
         
+        // Only touch the signature fields so a concurrent status change is not overwritten
+        LocalDateTime now = LocalDateTime.now();
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(invoice.getId())),
+                new Update()
+                        .set("digitalSignature", signatureData)
+                        .set("signedBy", adminId)
+                        .set("signedAt", now)
+                        .set("updatedAt", now),
+                Invoice.class);
+        
         invoice.setDigitalSignature(signatureData);
         invoice.setSignedBy(adminId);
-        invoice.setSignedAt(LocalDateTime.now());
-        invoice.setUpdatedAt(LocalDateTime.now());
-        
-        return invoiceRepository.save(invoice);
+        invoice.setSignedAt(now);
+        invoice.setUpdatedAt(now);
+        return invoice;
     }
     
     public String generateInvoicePDF(String invoiceId) {
+        return getInvoicePdf(invoiceId).path().toString();
+    }
+    
+    public InvoicePdf getInvoicePdf(String invoiceId) {
         Invoice invoice = getInvoiceById(invoiceId);
-        // This would generate PDF and return file path
-        // For now, return a placeholder
-        return "invoices/" + invoice.getInvoiceNumber() + ".pdf";
+        
+        // PDFs are stored under a hash of everything they show, so an unchanged invoice is never re-rendered
+        String contentHash = contentHash(invoice);
+        Path outputDirectory = Path.of(pdfOutputDirectory);
+        Path pdfPath = outputDirectory.resolve(invoice.getInvoiceNumber() + "-" + contentHash + ".pdf");
+        
+        if (!Files.exists(pdfPath)) {
+            try {
+                Files.createDirectories(outputDirectory);
+                Path tempFile = Files.createTempFile(outputDirectory, invoice.getInvoiceNumber(), ".tmp");
+                boolean moved = false;
+                try {
+                    try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+                        invoicePdfRenderer.render(invoice, outputStream);
+                    }
+                    Files.move(tempFile, pdfPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    moved = true;
+                } finally {
+                    // A failed render must not leave partial files behind in the output directory
+                    if (!moved) {
+                        Files.deleteIfExists(tempFile);
+                    }
+                }
+                log.info("Rendered PDF for invoice {} to {}", invoice.getInvoiceNumber(), pdfPath);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to generate invoice PDF", e);
+            }
+        }
+        
+        if (!pdfPath.toString().equals(invoice.getPdfPath())) {
+            removeStalePdf(invoice.getPdfPath());
+            mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(invoice.getId())),
+                    new Update().set("pdfPath", pdfPath.toString()),
+                    Invoice.class);
+        }
+        
+        return new InvoicePdf(pdfPath, contentHash);
+    }
+    
+    private void removeStalePdf(String stalePath) {
+        if (stalePath == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(Path.of(stalePath));
+        } catch (IOException e) {
+            log.warn("Could not remove stale invoice PDF {}: {}", stalePath, e.getMessage());
+        }
+    }
+    
+    private String contentHash(Invoice invoice) {
+        StringBuilder content = new StringBuilder()
+                .append(InvoicePdfRenderer.LAYOUT_VERSION).append('|')
+                .append(invoice.getInvoiceNumber()).append('|')
+                .append(invoice.getOrderNumber()).append('|')
+                .append(invoice.getCustomerName()).append('|')
+                .append(invoice.getCustomerEmail()).append('|')
+                .append(invoice.getCustomerPhone()).append('|')
+                .append(invoice.getCustomerAddress()).append('|')
+                .append(invoice.getSubtotal()).append('|')
+                .append(invoice.getTax()).append('|')
+                .append(invoice.getTotal()).append('|')
+                .append(invoice.getStatus()).append('|')
+                .append(invoice.getCreatedAt()).append('|')
+                .append(invoice.getDueDate()).append('|')
+                .append(invoice.getPaidDate()).append('|')
+                .append(invoice.getPaymentMethod()).append('|')
+                .append(invoice.getTransactionId()).append('|')
+                .append(invoice.getSignedBy()).append('|')
+                .append(invoice.getSignedAt()).append('|')
+                .append(invoice.getNotes());
+        if (invoice.getItems() != null) {
+            for (Invoice.InvoiceItem item : invoice.getItems()) {
+                content.append('|').append(item.getProductName())
+                        .append(',').append(item.getBarcode())
+                        .append(',').append(item.getQuantity())
+                        .append(',').append(item.getUnitPrice())
+                        .append(',').append(item.getTotalPrice());
+            }
+        }
+        
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    public record InvoicePdf(Path path, String contentHash) {
     }
     
     private Invoice.InvoiceItem convertToInvoiceItem(Order.OrderItem orderItem) {
@@ -140,29 +323,30 @@ public class InvoiceService {
     }
     
     private String generateInvoiceNumber() {
-        String timestamp = String.valueOf(System.currentTimeMillis()).substring(8);
-        String random = UUID.randomUUID().toString().substring(0, 4).toUpperCase();
-        return "INV-" + timestamp + random;
+        return sequenceService.nextNumber(SequenceService.INVOICE_SEQUENCE, "INV");
     }
     
     public BigDecimal getTotalInvoiceAmount() {
-        return invoiceRepository.findAll().stream()
-                .map(Invoice::getTotal)
+        return invoiceSummaryService.getTotalsByStatus().values().stream()
+                .map(InvoiceSummaryService.StatusTotals::amount)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
     
     public BigDecimal getPaidInvoiceAmount() {
-        return invoiceRepository.findAll().stream()
-                .filter(invoice -> invoice.getStatus() == Invoice.InvoiceStatus.PAID)
-                .map(Invoice::getTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return invoiceSummaryService.getTotalsByStatus().get(Invoice.InvoiceStatus.PAID).amount();
     }
     
     public BigDecimal getPendingInvoiceAmount() {
-        return invoiceRepository.findAll().stream()
-                .filter(invoice -> invoice.getStatus() == Invoice.InvoiceStatus.DRAFT || 
-                                 invoice.getStatus() == Invoice.InvoiceStatus.SENT)
-                .map(Invoice::getTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Map<Invoice.InvoiceStatus, InvoiceSummaryService.StatusTotals> totals = invoiceSummaryService.getTotalsByStatus();
+        return totals.get(Invoice.InvoiceStatus.DRAFT).amount()
+                .add(totals.get(Invoice.InvoiceStatus.SENT).amount());
+    }
+    
+    public Map<Invoice.InvoiceStatus, InvoiceSummaryService.StatusTotals> getInvoiceTotalsByStatus() {
+        return invoiceSummaryService.getTotalsByStatus();
+    }
+    
+    public Map<Invoice.InvoiceStatus, InvoiceSummaryService.StatusTotals> rebuildInvoiceSummary() {
+        return invoiceSummaryService.rebuild();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,128 @@
+package com.emart.service;
+
+import com.emart.model.Invoice;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Invoice count and amount per status, kept in a single document and
+ * adjusted with $inc whenever an invoice is created or changes status, so
+ * the financial summary is one read instead of a collection scan.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InvoiceSummaryService {
+    
+    private static final String COLLECTION = "invoice_summary";
+    private static final String SUMMARY_ID = "invoices";
+    
+    private final MongoTemplate mongoTemplate;
+    
+    public void recordCreated(Invoice invoice) {
+        Update update = new Update().set("updatedAt", LocalDateTime.now());
+        adjust(update, invoice.getStatus(), invoice.getTotal(), 1);
+        apply(update);
+    }
+    
+    public void recordStatusChange(Invoice invoice, Invoice.InvoiceStatus previous, Invoice.InvoiceStatus current) {
+        if (previous == current) {
+            return;
+        }
+        Update update = new Update().set("updatedAt", LocalDateTime.now());
+        adjust(update, previous, invoice.getTotal(), -1);
+        adjust(update, current, invoice.getTotal(), 1);
+        apply(update);
+    }
+    
+    public Map<Invoice.InvoiceStatus, StatusTotals> getTotalsByStatus() {
+        Document summary = mongoTemplate.findById(SUMMARY_ID, Document.class, COLLECTION);
+        Document counts = summary == null ? null : summary.get("counts", Document.class);
+        Document amounts = summary == null ? null : summary.get("amounts", Document.class);
+        
+        Map<Invoice.InvoiceStatus, StatusTotals> totals = new EnumMap<>(Invoice.InvoiceStatus.class);
+        for (Invoice.InvoiceStatus status : Invoice.InvoiceStatus.values()) {
+            Number count = counts == null ? null : counts.get(status.name(), Number.class);
+            Object amount = amounts == null ? null : amounts.get(status.name());
+            totals.put(status, new StatusTotals(
+                    count == null ? 0 : count.longValue(),
+                    amount instanceof Decimal128 decimal ? decimal.bigDecimalValue() : BigDecimal.ZERO));
+        }
+        return totals;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfMissing() {
+        if (mongoTemplate.findById(SUMMARY_ID, Document.class, COLLECTION) == null) {
+            rebuild();
+        }
+    }
+    
+    /**
+     * Recounts the summary from the invoices collection to repair drift.
+     * Changes that land while it runs may be overwritten.
+     */
+    public Map<Invoice.InvoiceStatus, StatusTotals> rebuild() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.group("status")
+                        .count().as("count")
+                        .sum(ConvertOperators.ToDecimal.toDecimal("$total")).as("amount"));
+        
+        Update update = new Update().set("updatedAt", LocalDateTime.now());
+        for (Invoice.InvoiceStatus status : Invoice.InvoiceStatus.values()) {
+            update.set("counts." + status.name(), 0L);
+            update.set("amounts." + status.name(), new Decimal128(BigDecimal.ZERO));
+        }
+        for (Document group : mongoTemplate.aggregate(aggregation, Invoice.class, Document.class).getMappedResults()) {
+            String status = group.getString("_id");
+            if (status == null) {
+                continue;
+            }
+            Object amount = group.get("amount");
+            update.set("counts." + status, ((Number) group.get("count")).longValue());
+            update.set("amounts." + status, amount instanceof Decimal128 ? amount : new Decimal128(BigDecimal.ZERO));
+        }
+        apply(update);
+        
+        Map<Invoice.InvoiceStatus, StatusTotals> totals = getTotalsByStatus();
+        log.info("Rebuilt invoice summary: {}", totals);
+        return totals;
+    }
+    
+    private void adjust(Update update, Invoice.InvoiceStatus status, BigDecimal total, int countDelta) {
+        if (status == null) {
+            return;
+        }
+        BigDecimal amount = total == null ? BigDecimal.ZERO : total;
+        update.inc("counts." + status.name(), countDelta);
+        update.inc("amounts." + status.name(), new Decimal128(countDelta < 0 ? amount.negate() : amount));
+    }
+    
+    private void apply(Update update) {
+        try {
+            mongoTemplate.upsert(Query.query(Criteria.where("_id").is(SUMMARY_ID)), update, COLLECTION);
+        } catch (Exception e) {
+            // The invoice itself has been saved; a rebuild repairs the summary
+            log.error("Failed to update invoice summary: {}", e.getMessage());
+        }
+    }
+    
+    public record StatusTotals(long count, BigDecimal amount) {
+    }
+}
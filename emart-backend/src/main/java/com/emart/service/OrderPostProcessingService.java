@@ -0,0 +1,274 @@
+package com.emart.service;
+
+import com.emart.model.Invoice;
+import com.emart.model.Order;
+import com.emart.model.OrderOutboxTask;
+import com.emart.repository.OrderOutboxRepository;
+import com.emart.repository.OrderRepository;
+import com.mongodb.client.result.UpdateResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs invoice generation and the order confirmation email after an order
+ * has been persisted. Every order gets a durable outbox task that moves
+ * through the stages in order; the in-memory worker pool is only a fast
+ * path, and the scheduled poller picks up anything it could not take
+ * (full queue, failures awaiting retry, tasks orphaned by a restart).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderPostProcessingService {
+
+    private final OrderOutboxRepository orderOutboxRepository;
+    private final OrderRepository orderRepository;
+    private final InvoiceService invoiceService;
+    private final EmailService emailService;
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${app.order-pipeline.workers:4}")
+    private int workers;
+
+    @Value("${app.order-pipeline.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.order-pipeline.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.order-pipeline.retry-delay-ms:2000}")
+    private long retryDelayMs;
+
+    @Value("${app.order-pipeline.lease-ms:60000}")
+    private long leaseMs;
+
+    @Value("${app.order-pipeline.batch-size:100}")
+    private int batchSize;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void startWorkers() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "order-pipeline-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void stopWorkers() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Records the task for an order that is about to be inserted. Writing it
+     * first means a crash between the two writes leaves a task whose order is
+     * missing (retried, then failed) instead of an order that never gets its
+     * invoice and confirmation email. Should the poller claim the task before
+     * the order lands, the missing order is simply retried.
+     */
+    public OrderOutboxTask prepare(String orderId) {
+        OrderOutboxTask task = new OrderOutboxTask();
+        task.setOrderId(orderId);
+        task.setStage(OrderOutboxTask.Stage.GENERATE_INVOICE);
+        task.setStatus(OrderOutboxTask.Status.PENDING);
+        task.setNextAttemptAt(LocalDateTime.now());
+        task.setCreatedAt(LocalDateTime.now());
+        task.setUpdatedAt(LocalDateTime.now());
+
+        return orderOutboxRepository.insert(task);
+    }
+
+    /**
+     * Hands a prepared task to the workers once its order has been inserted.
+     */
+    public void start(OrderOutboxTask task) {
+        // Hand the task to the workers only once the surrounding transaction (if any) has committed
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(task.getId());
+                }
+            });
+        } else {
+            submit(task.getId());
+        }
+    }
+
+    /**
+     * Removes a prepared task whose order insert failed.
+     */
+    public void discard(OrderOutboxTask task) {
+        orderOutboxRepository.deleteById(task.getId());
+    }
+
+    @Scheduled(fixedDelayString = "${app.order-pipeline.poll-interval-ms:5000}")
+    public void pollOutbox() {
+        int capacity = executor.getQueue().remainingCapacity();
+        if (capacity == 0) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Query due = Query.query(dueCriteria(now))
+                .with(Sort.by("nextAttemptAt"))
+                .limit(Math.min(batchSize, capacity));
+        due.fields().include("_id");
+
+        List<OrderOutboxTask> tasks = mongoTemplate.find(due, OrderOutboxTask.class);
+        for (OrderOutboxTask task : tasks) {
+            if (!submit(task.getId())) {
+                break;
+            }
+        }
+    }
+
+    public long countTasks(OrderOutboxTask.Status status) {
+        return orderOutboxRepository.countByStatus(status);
+    }
+
+    private boolean submit(String taskId) {
+        try {
+            executor.execute(() -> process(taskId));
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Back-pressure: the task stays PENDING in the outbox and the poller retries it later
+            log.debug("Order pipeline queue full, deferring task {}", taskId);
+            return false;
+        }
+    }
+
+    private void process(String taskId) {
+        OrderOutboxTask task = claim(taskId);
+        if (task == null) {
+            return;
+        }
+
+        try {
+            Order order = orderRepository.findById(task.getOrderId())
+                    .orElseThrow(() -> new RuntimeException("Order not found: " + task.getOrderId()));
+
+            if (task.getStage() == OrderOutboxTask.Stage.GENERATE_INVOICE) {
+                Invoice invoice = invoiceService.generateInvoiceForOrder(order);
+                mongoTemplate.updateFirst(
+                        Query.query(Criteria.where("_id").is(order.getId())),
+                        new Update().set("invoiceId", invoice.getId()),
+                        Order.class);
+
+                // The invoice insert is idempotent per order, so whoever holds the lease now carries on
+                if (!writeIfLeaseHeld(task, new Update()
+                        .set("stage", OrderOutboxTask.Stage.SEND_CONFIRMATION)
+                        .set("attempts", 0))) {
+                    return;
+                }
+                task.setStage(OrderOutboxTask.Stage.SEND_CONFIRMATION);
+                task.setAttempts(0);
+            }
+
+            emailService.sendOrderConfirmation(
+                order.getCustomerEmail(),
+                order.getCustomerName(),
+                order.getOrderNumber(),
+                order.getTotal().toString()
+            );
+
+            writeIfLeaseHeld(task, new Update()
+                    .set("status", OrderOutboxTask.Status.COMPLETED)
+                    .unset("leaseExpiresAt")
+                    .unset("lastError"));
+        } catch (Exception e) {
+            handleFailure(task, e);
+        }
+    }
+
+    private OrderOutboxTask claim(String taskId) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = Query.query(new Criteria().andOperator(Criteria.where("_id").is(taskId), dueCriteria(now)));
+        Update update = new Update()
+                .set("status", OrderOutboxTask.Status.PROCESSING)
+                .set("leaseExpiresAt", now.plus(Duration.ofMillis(leaseMs)))
+                .set("updatedAt", now);
+
+        return mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), OrderOutboxTask.class);
+    }
+
+    private void handleFailure(OrderOutboxTask task, Exception e) {
+        int attempts = task.getAttempts() + 1;
+        Update update = new Update()
+                .set("attempts", attempts)
+                .set("lastError", e.getMessage())
+                .unset("leaseExpiresAt");
+
+        if (attempts >= maxAttempts) {
+            update.set("status", OrderOutboxTask.Status.FAILED);
+            if (writeIfLeaseHeld(task, update)) {
+                log.error("Order post-processing gave up for order {} at stage {}: {}",
+                        task.getOrderId(), task.getStage(), e.getMessage());
+            }
+        } else {
+            long delay = retryDelayMs << Math.min(attempts - 1, 16);
+            update.set("status", OrderOutboxTask.Status.PENDING)
+                    .set("nextAttemptAt", LocalDateTime.now().plus(Duration.ofMillis(delay)));
+            if (writeIfLeaseHeld(task, update)) {
+                log.warn("Order post-processing failed for order {} at stage {} (attempt {}): {}",
+                        task.getOrderId(), task.getStage(), attempts, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Applies the update only while the claim this worker made is still the
+     * current one. A stage that outran its lease may have been re-claimed by
+     * the poller, and the other worker's progress must not be overwritten.
+     */
+    private boolean writeIfLeaseHeld(OrderOutboxTask task, Update update) {
+        Query query = Query.query(Criteria.where("_id").is(task.getId())
+                .and("status").is(OrderOutboxTask.Status.PROCESSING)
+                .and("leaseExpiresAt").is(task.getLeaseExpiresAt()));
+
+        UpdateResult result = mongoTemplate.updateFirst(query, update.set("updatedAt", LocalDateTime.now()),
+                OrderOutboxTask.class);
+        if (result.getMatchedCount() == 0) {
+            log.warn("Lease on order post-processing task {} for order {} was lost, dropping its result",
+                    task.getId(), task.getOrderId());
+            return false;
+        }
+        return true;
+    }
+
+    private Criteria dueCriteria(LocalDateTime now) {
+        return new Criteria().orOperator(
+                Criteria.where("status").is(OrderOutboxTask.Status.PENDING).and("nextAttemptAt").lte(now),
+                Criteria.where("status").is(OrderOutboxTask.Status.PROCESSING).and("leaseExpiresAt").lt(now));
+    }
+}
@@ -1,31 +1,63 @@
 package com.emart.service;
 
 import com.emart.model.Order;
+import com.emart.model.OrderOutboxTask;
 import com.emart.model.Product;
+import com.emart.model.RevenueBucket;
 import com.emart.model.User;
 import com.emart.repository.OrderRepository;
 import com.emart.repository.ProductRepository;
 import com.emart.repository.UserRepository;
+import com.emart.util.CursorPage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class OrderService {
     
+    private static final List<ExportService.Column<Order>> EXPORT_COLUMNS = List.of(
+            new ExportService.Column<>("id", Order::getId),
+            new ExportService.Column<>("orderNumber", Order::getOrderNumber),
+            new ExportService.Column<>("orderDate", Order::getOrderDate),
+            new ExportService.Column<>("customerId", Order::getCustomerId),
+            new ExportService.Column<>("customerName", Order::getCustomerName),
+            new ExportService.Column<>("customerEmail", Order::getCustomerEmail),
+            new ExportService.Column<>("status", Order::getStatus),
+            new ExportService.Column<>("paymentStatus", Order::getPaymentStatus),
+            new ExportService.Column<>("items", order -> order.getItems() == null ? 0 : order.getItems().size()),
+            new ExportService.Column<>("subtotal", Order::getSubtotal),
+            new ExportService.Column<>("tax", Order::getTax),
+            new ExportService.Column<>("total", Order::getTotal),
+            new ExportService.Column<>("invoiceId", Order::getInvoiceId));
+    
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
     private final ProductService productService;
-    private final InvoiceService invoiceService;
+    private final OrderPostProcessingService orderPostProcessingService;
+    private final SequenceService sequenceService;
+    private final RevenueRollupService revenueRollupService;
+    private final MongoTemplate mongoTemplate;
+    private final CursorPager cursorPager;
+    private final ExportService exportService;
     
     @Transactional
     public Order createOrder(Order order, String customerId) {
@@ -38,7 +70,7 @@ public class OrderService {
         }
         
         // Validate and process order items
-        validateOrderItems(order.getItems());
+        Map<String, Integer> quantities = validateOrderItems(order.getItems());
         
         // Calculate totals
         calculateOrderTotals(order);
@@ -54,14 +86,26 @@ public class OrderService {
         order.setOrderDate(LocalDateTime.now());
         order.setUpdatedAt(LocalDateTime.now());
         
-        // Save order
-        Order savedOrder = orderRepository.save(order);
+        // Reserve inventory before the order becomes visible
+        productService.reserveStock(quantities);
         
-        // Update inventory
-        updateInventoryForOrder(order.getItems());
+        // The post-processing task is written before the order, so once the order exists
+        // its invoice and confirmation email are guaranteed to follow
+        order.setId(new ObjectId().toHexString());
+        OrderOutboxTask task = null;
+        Order savedOrder;
+        try {
+            task = orderPostProcessingService.prepare(order.getId());
+            savedOrder = orderRepository.insert(order);
+        } catch (RuntimeException e) {
+            if (task != null) {
+                orderPostProcessingService.discard(task);
+            }
+            productService.releaseStock(quantities);
+            throw e;
+        }
         
-        // Generate invoice
-        invoiceService.generateInvoiceForOrder(savedOrder);
+        orderPostProcessingService.start(task);
         
         return savedOrder;
     }
@@ -77,13 +121,22 @@ public class OrderService {
     }
     
     public Order updatePaymentStatus(String orderId, Order.PaymentStatus paymentStatus) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
+        LocalDateTime now = LocalDateTime.now();
         
-        order.setPaymentStatus(paymentStatus);
-        order.setUpdatedAt(LocalDateTime.now());
+        // Swap the status atomically so the revenue rollup sees the true previous state
+        Order order = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(orderId)),
+                new Update().set("paymentStatus", paymentStatus).set("updatedAt", now),
+                Order.class);
+        if (order == null) {
+            throw new RuntimeException("Order not found");
+        }
         
-        return orderRepository.save(order);
+        revenueRollupService.recordOrderPaymentStatusChange(order, order.getPaymentStatus(), paymentStatus);
+        
+        order.setPaymentStatus(paymentStatus);
+        order.setUpdatedAt(now);
+        return order;
     }
     
     public Order getOrderById(String orderId) {
@@ -112,6 +165,19 @@ public class OrderService {
         return orderRepository.findAll();
     }
     
+    /**
+     * Streams orders with orderDate in the given range (either bound may be
+     * null) to the output stream as CSV or NDJSON.
+     */
+    public void exportOrders(ExportService.Format format, LocalDateTime startDate, LocalDateTime endDate,
+                             boolean gzip, OutputStream outputStream) throws IOException {
+        exportService.export(Order.class, "orderDate", startDate, endDate, EXPORT_COLUMNS, format, gzip, outputStream);
+    }
+    
+    public CursorPage<Order> getOrdersPage(String cursor, Integer limit) {
+        return cursorPager.page(Order.class, Order::getId, cursor, limit);
+    }
+    
     public List<Order> getPendingOrders() {
         return orderRepository.findPendingOrders();
     }
@@ -148,25 +214,43 @@ public class OrderService {
         orderRepository.save(order);
         
         // Restore inventory
-        restoreInventoryForOrder(order.getItems());
+        productService.releaseStock(quantitiesByProduct(order.getItems()));
     }
     
-    private void validateOrderItems(List<Order.OrderItem> items) {
+    private Map<String, Integer> validateOrderItems(List<Order.OrderItem> items) {
         if (items == null || items.isEmpty()) {
             throw new RuntimeException("Order must contain at least one item");
         }
         
+        // A non-positive quantity would pass the stock guard and add stock instead of reserving it
         for (Order.OrderItem item : items) {
-            Product product = productRepository.findById(item.getProductId())
-                    .orElseThrow(() -> new RuntimeException("Product not found: " + item.getProductId()));
+            if (item.getProductId() == null) {
+                throw new RuntimeException("Order item is missing a product");
+            }
+            if (item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new RuntimeException("Quantity must be positive for product: " + item.getProductId());
+            }
+        }
+        
+        // Load every product in the basket with a single query
+        Map<String, Integer> quantities = quantitiesByProduct(items);
+        Map<String, Product> products = new HashMap<>();
+        productRepository.findAllById(quantities.keySet())
+                .forEach(product -> products.put(product.getId(), product));
+        
+        for (Order.OrderItem item : items) {
+            Product product = products.get(item.getProductId());
+            if (product == null) {
+                throw new RuntimeException("Product not found: " + item.getProductId());
+            }
             
             // Check if product is approved and available
             if (product.getStatus() != Product.ProductStatus.APPROVED) {
                 throw new RuntimeException("Product is not available: " + product.getName());
             }
             
-            // Check stock availability
-            if (product.getQuantity() < item.getQuantity()) {
+            // Check stock availability across every line for the same product
+            if (product.getQuantity() < quantities.get(item.getProductId())) {
                 throw new RuntimeException("Insufficient stock for product: " + product.getName());
             }
             
@@ -176,6 +260,8 @@ public class OrderService {
             item.setUnitPrice(product.getPrice());
             item.setTotalPrice(product.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
         }
+        
+        return quantities;
     }
     
     private void calculateOrderTotals(Order order) {
@@ -192,35 +278,31 @@ public class OrderService {
         order.setTotal(total);
     }
     
-    private void updateInventoryForOrder(List<Order.OrderItem> items) {
-        for (Order.OrderItem item : items) {
-            productService.updateStock(item.getProductId(), -item.getQuantity());
-        }
-    }
-    
-    private void restoreInventoryForOrder(List<Order.OrderItem> items) {
+    private Map<String, Integer> quantitiesByProduct(List<Order.OrderItem> items) {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
         for (Order.OrderItem item : items) {
-            productService.updateStock(item.getProductId(), item.getQuantity());
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
         }
+        return quantities;
     }
     
     private String generateOrderNumber() {
-        String timestamp = String.valueOf(System.currentTimeMillis()).substring(8);
-        String random = UUID.randomUUID().toString().substring(0, 4).toUpperCase();
-        return "ORD-" + timestamp + random;
+        return sequenceService.nextNumber(SequenceService.ORDER_SEQUENCE, "ORD");
     }
     
     public BigDecimal getTotalRevenue() {
-        return orderRepository.findAll().stream()
-                .filter(order -> order.getPaymentStatus() == Order.PaymentStatus.PAID)
-                .map(Order::getTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return revenueRollupService.getTotal(RevenueBucket.Metric.ORDER_REVENUE);
     }
     
     public BigDecimal getTotalRevenueByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return orderRepository.findByOrderDateBetween(startDate, endDate).stream()
-                .filter(order -> order.getPaymentStatus() == Order.PaymentStatus.PAID)
-                .map(Order::getTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return revenueRollupService.getTotal(RevenueBucket.Metric.ORDER_REVENUE, startDate, endDate);
+    }
+    
+    public Map<String, Object> rebuildRevenueRollups() {
+        return revenueRollupService.rebuild(RevenueBucket.Metric.ORDER_REVENUE);
+    }
+    
+    public Map<String, Object> checkRevenueRollups() {
+        return revenueRollupService.check(RevenueBucket.Metric.ORDER_REVENUE);
     }
 } 
\ No newline at end of file
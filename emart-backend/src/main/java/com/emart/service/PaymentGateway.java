@@ -0,0 +1,26 @@
+package com.emart.service;
+
+import com.emart.model.Payment;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Charges a payment against an external provider. Implementations must not
+ * block the calling thread; the returned future completes when the provider
+ * has answered.
+ */
+public interface PaymentGateway {
+
+    CompletableFuture<ChargeResult> charge(Payment payment);
+
+    /**
+     * Asks the provider for the outcome of an earlier charge, identified by
+     * the payment's transaction id. Used to settle payments whose charge
+     * callback was lost; a charge the provider never received completes as
+     * failed.
+     */
+    CompletableFuture<ChargeResult> lookup(Payment payment);
+
+    record ChargeResult(boolean success, String gatewayTransactionId, String message) {
+    }
+}
@@ -3,31 +3,110 @@ package com.emart.service;
 import com.emart.model.Payment;
 import com.emart.model.Order;
 import com.emart.model.Invoice;
+import com.emart.model.RevenueBucket;
 import com.emart.repository.PaymentRepository;
 import com.emart.repository.OrderRepository;
 import com.emart.repository.InvoiceRepository;
+import com.emart.util.BoundedCache;
+import com.emart.util.CursorPage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PaymentService {
     
+    private static final List<ExportService.Column<Payment>> EXPORT_COLUMNS = List.of(
+            new ExportService.Column<>("id", Payment::getId),
+            new ExportService.Column<>("transactionId", Payment::getTransactionId),
+            new ExportService.Column<>("paymentDate", Payment::getPaymentDate),
+            new ExportService.Column<>("orderId", Payment::getOrderId),
+            new ExportService.Column<>("orderNumber", Payment::getOrderNumber),
+            new ExportService.Column<>("customerId", Payment::getCustomerId),
+            new ExportService.Column<>("customerName", Payment::getCustomerName),
+            new ExportService.Column<>("amount", Payment::getAmount),
+            new ExportService.Column<>("paymentMethod", Payment::getPaymentMethod),
+            new ExportService.Column<>("status", Payment::getStatus),
+            new ExportService.Column<>("gatewayTransactionId", Payment::getGatewayTransactionId),
+            new ExportService.Column<>("failureReason", Payment::getFailureReason),
+            new ExportService.Column<>("refundReason", Payment::getRefundReason),
+            new ExportService.Column<>("refundDate", Payment::getRefundDate));
+    
     private final PaymentRepository paymentRepository;
     private final OrderRepository orderRepository;
     private final InvoiceRepository invoiceRepository;
     private final OrderService orderService;
     private final InvoiceService invoiceService;
+    private final PaymentGateway paymentGateway;
+    private final EmailService emailService;
+    private final SequenceService sequenceService;
+    private final RevenueRollupService revenueRollupService;
+    private final MongoTemplate mongoTemplate;
+    private final CursorPager cursorPager;
+    private final ExportService exportService;
+    
+    @Value("${app.payment-gateway.completion-threads:4}")
+    private int completionThreads;
+    
+    @Value("${app.payment-gateway.reconcile.stale-after-ms:300000}")
+    private long staleProcessingMs;
+    
+    @Value("${app.payment-gateway.reconcile.batch-size:100}")
+    private int reconcileBatchSize;
+    
+    @Value("${app.payments.methods-summary.ttl-ms:30000}")
+    private long methodsSummaryTtlMs;
+    
+    private ExecutorService completionExecutor;
+    
+    // Keyed by the requested date range; entries expire quickly so the dashboard stays close to live
+    private final BoundedCache<List<LocalDateTime>, Map<String, Object>> methodsSummaryCache = new BoundedCache<>(100);
+    
+    @PostConstruct
+    void startCompletionExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        completionExecutor = Executors.newFixedThreadPool(completionThreads, runnable -> {
+            Thread thread = new Thread(runnable, "payment-completion-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    void stopCompletionExecutor() {
+        completionExecutor.shutdown();
+    }
     
-    @Transactional
     public Payment processPayment(String orderId, Payment.PaymentMethod paymentMethod, 
                                 BigDecimal amount, String gatewayResponse) {
         // Validate order exists
@@ -45,8 +124,7 @@ public class PaymentService {
         payment.setAmount(amount);
         payment.setPaymentMethod(paymentMethod);
         payment.setGatewayResponse(gatewayResponse);
-        payment.setGatewayTransactionId(generateGatewayTransactionId());
-        payment.setStatus(Payment.PaymentStatus.PENDING);
+        payment.setStatus(Payment.PaymentStatus.PROCESSING);
         payment.setPaymentDate(LocalDateTime.now());
         payment.setCreatedAt(LocalDateTime.now());
         payment.setUpdatedAt(LocalDateTime.now());
@@ -54,38 +132,100 @@ public class PaymentService {
         // Save payment
         Payment savedPayment = paymentRepository.save(payment);
         
-        // Process payment (simulate payment gateway)
-        boolean paymentSuccess = processPaymentWithGateway(payment);
+        // Hand the charge to the gateway; the caller polls the payment for the outcome
+        paymentGateway.charge(savedPayment)
+                .whenCompleteAsync((result, error) -> completePayment(savedPayment.getId(), result, error),
+                        completionExecutor);
+        
+        return savedPayment;
+    }
+    
+    /**
+     * Asks the gateway again for payments that have been PROCESSING for
+     * longer than a charge should take, e.g. because the callback was lost to
+     * a restart. Each payment is claimed by bumping updatedAt, so it is only
+     * asked about once per stale period.
+     */
+    @Scheduled(fixedDelayString = "${app.payment-gateway.reconcile.interval-ms:60000}")
+    public void reconcileStalePayments() {
+        LocalDateTime staleBefore = LocalDateTime.now().minus(Duration.ofMillis(staleProcessingMs));
         
-        if (paymentSuccess) {
-            // Update payment status
-            savedPayment.setStatus(Payment.PaymentStatus.COMPLETED);
-            savedPayment.setUpdatedAt(LocalDateTime.now());
-            paymentRepository.save(savedPayment);
+        for (int i = 0; i < reconcileBatchSize; i++) {
+            Payment payment = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("status").is(Payment.PaymentStatus.PROCESSING)
+                            .and("updatedAt").lt(staleBefore)),
+                    new Update().set("updatedAt", LocalDateTime.now()),
+                    Payment.class);
+            if (payment == null) {
+                return;
+            }
             
-            // Update order payment status
-            orderService.updatePaymentStatus(orderId, Order.PaymentStatus.PAID);
+            log.warn("Payment {} has been processing since {}, asking the gateway for its outcome",
+                    payment.getTransactionId(), payment.getUpdatedAt());
+            paymentGateway.lookup(payment)
+                    .whenCompleteAsync((result, error) -> {
+                        if (error != null) {
+                            // Unknown rather than failed; the next stale period asks again
+                            log.warn("Gateway lookup failed for payment {}: {}", payment.getTransactionId(), error.getMessage());
+                            return;
+                        }
+                        completePayment(payment.getId(), result, null);
+                    }, completionExecutor);
+        }
+    }
+    
+    private void completePayment(String paymentId, PaymentGateway.ChargeResult result, Throwable error) {
+        try {
+            boolean success = error == null && result.success();
+            Payment.PaymentStatus status = success ? Payment.PaymentStatus.COMPLETED : Payment.PaymentStatus.FAILED;
             
-            // Update invoice status if exists
-            try {
-                Invoice invoice = invoiceService.getInvoiceByOrderId(orderId);
-                invoiceService.updateInvoiceStatus(invoice.getId(), Invoice.InvoiceStatus.PAID);
-            } catch (Exception e) {
-                log.warn("No invoice found for order: {}", orderId);
+            Update update = new Update()
+                    .set("status", status)
+                    .set("updatedAt", LocalDateTime.now());
+            if (result != null && result.gatewayTransactionId() != null) {
+                update.set("gatewayTransactionId", result.gatewayTransactionId());
+            }
+            if (!success) {
+                update.set("failureReason", error != null ? error.getMessage() : result.message());
             }
             
-            log.info("Payment processed successfully for order: {}", orderId);
-        } else {
-            // Payment failed
-            savedPayment.setStatus(Payment.PaymentStatus.FAILED);
-            savedPayment.setFailureReason("Payment gateway processing failed");
-            savedPayment.setUpdatedAt(LocalDateTime.now());
-            paymentRepository.save(savedPayment);
+            // Only a payment still waiting on the gateway takes the outcome; an admin may have settled it meanwhile
+            Payment payment = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("_id").is(paymentId).and("status").is(Payment.PaymentStatus.PROCESSING)),
+                    update,
+                    Payment.class);
+            if (payment == null) {
+                log.warn("Ignoring gateway outcome {} for payment {}: it is no longer processing", status, paymentId);
+                return;
+            }
+            revenueRollupService.recordPaymentStatusChange(payment, payment.getStatus(), status);
             
-            log.error("Payment failed for order: {}", orderId);
+            if (success) {
+                // Update order payment status
+                orderService.updatePaymentStatus(payment.getOrderId(), Order.PaymentStatus.PAID);
+                
+                // Update invoice status if exists
+                try {
+                    Invoice invoice = invoiceService.getInvoiceByOrderId(payment.getOrderId());
+                    invoiceService.updateInvoiceStatus(invoice.getId(), Invoice.InvoiceStatus.PAID);
+                } catch (Exception e) {
+                    log.warn("No invoice found for order: {}", payment.getOrderId());
+                }
+                
+                emailService.sendPaymentConfirmation(
+                    payment.getCustomerEmail(),
+                    payment.getCustomerName(),
+                    payment.getOrderNumber(),
+                    payment.getAmount().toString()
+                );
+                
+                log.info("Payment processed successfully for order: {}", payment.getOrderId());
+            } else {
+                log.error("Payment failed for order: {}", payment.getOrderId());
+            }
+        } catch (Exception e) {
+            log.error("Failed to record gateway outcome for payment {}: {}", paymentId, e.getMessage());
         }
-        
-        return savedPayment;
     }
     
     public Payment getPaymentById(String paymentId) {
@@ -120,16 +260,40 @@ public class PaymentService {
         return paymentRepository.findAll();
     }
     
+    /**
+     * Streams payments with paymentDate in the given range (either bound may be
+     * null) to the output stream as CSV or NDJSON.
+     */
+    public void exportPayments(ExportService.Format format, LocalDateTime startDate, LocalDateTime endDate,
+                             boolean gzip, OutputStream outputStream) throws IOException {
+        exportService.export(Payment.class, "paymentDate", startDate, endDate, EXPORT_COLUMNS, format, gzip, outputStream);
+    }
+    
+    public CursorPage<Payment> getPaymentsPage(String cursor, Integer limit) {
+        return cursorPager.page(Payment.class, Payment::getId, cursor, limit);
+    }
+    
     public List<Payment> getPaymentsByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
         return paymentRepository.findByPaymentDateBetween(startDate, endDate);
     }
     
     public Payment updatePaymentStatus(String paymentId, Payment.PaymentStatus status) {
-        Payment payment = getPaymentById(paymentId);
-        payment.setStatus(status);
-        payment.setUpdatedAt(LocalDateTime.now());
+        LocalDateTime now = LocalDateTime.now();
+        
+        // Swap the status atomically so the revenue rollup sees the true previous state
+        Payment payment = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(paymentId)),
+                new Update().set("status", status).set("updatedAt", now),
+                Payment.class);
+        if (payment == null) {
+            throw new RuntimeException("Payment not found");
+        }
+        
+        revenueRollupService.recordPaymentStatusChange(payment, payment.getStatus(), status);
         
-        return paymentRepository.save(payment);
+        payment.setStatus(status);
+        payment.setUpdatedAt(now);
+        return payment;
     }
     
     public Payment refundPayment(String paymentId, BigDecimal refundAmount, String refundReason) {
@@ -143,6 +307,21 @@ public class PaymentService {
             throw new RuntimeException("Refund amount cannot exceed original payment amount");
         }
         
+        // Claim the refund atomically; a concurrent refund or status change makes this one fail
+        LocalDateTime now = LocalDateTime.now();
+        Payment refundedPayment = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(paymentId).and("status").is(Payment.PaymentStatus.COMPLETED)),
+                new Update()
+                        .set("status", Payment.PaymentStatus.REFUNDED)
+                        .set("refundReason", refundReason)
+                        .set("refundDate", now)
+                        .set("updatedAt", now),
+                Payment.class);
+        if (refundedPayment == null) {
+            throw new RuntimeException("Cannot refund payment that is not completed");
+        }
+        revenueRollupService.recordPaymentStatusChange(refundedPayment, refundedPayment.getStatus(), Payment.PaymentStatus.REFUNDED);
+        
         // Create refund payment record
         Payment refundPayment = new Payment();
         refundPayment.setTransactionId(generateTransactionId());
@@ -162,35 +341,13 @@ public class PaymentService {
         refundPayment.setCreatedAt(LocalDateTime.now());
         refundPayment.setUpdatedAt(LocalDateTime.now());
         
-        // Update original payment status
-        originalPayment.setStatus(Payment.PaymentStatus.REFUNDED);
-        originalPayment.setRefundReason(refundReason);
-        originalPayment.setRefundDate(LocalDateTime.now());
-        originalPayment.setUpdatedAt(LocalDateTime.now());
-        paymentRepository.save(originalPayment);
-        
-        return paymentRepository.save(refundPayment);
-    }
-    
-    private boolean processPaymentWithGateway(Payment payment) {
-        // Simulate payment gateway processing
-        // In a real application, this would integrate with actual payment gateways
-        // like Stripe, PayPal, etc.
-        
-        try {
-            // Simulate processing delay
-            Thread.sleep(1000);
-            
-            // Simulate success/failure (90% success rate)
-            return Math.random() > 0.1;
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return false;
-        }
+        Payment savedRefund = paymentRepository.save(refundPayment);
+        revenueRollupService.recordPaymentStatusChange(savedRefund, null, Payment.PaymentStatus.COMPLETED);
+        return savedRefund;
     }
     
     private String generateTransactionId() {
-        return UUID.randomUUID().toString().replace("-", "").substring(0, 16).toUpperCase();
+        return sequenceService.nextNumber(SequenceService.TRANSACTION_SEQUENCE, "TXN");
     }
     
     private String generateGatewayTransactionId() {
@@ -198,22 +355,92 @@ public class PaymentService {
     }
     
     public BigDecimal getTotalPayments() {
-        return paymentRepository.findCompletedPayments().stream()
-                .map(Payment::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return revenueRollupService.getTotal(RevenueBucket.Metric.PAYMENT_REVENUE);
     }
     
     public BigDecimal getTotalRefunds() {
-        return paymentRepository.findRefundedPayments().stream()
-                .map(Payment::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .abs();
+        return revenueRollupService.getTotal(RevenueBucket.Metric.PAYMENT_REFUNDS).abs();
     }
     
     public BigDecimal getTotalPaymentsByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return paymentRepository.findByPaymentDateBetween(startDate, endDate).stream()
-                .filter(payment -> payment.getStatus() == Payment.PaymentStatus.COMPLETED)
-                .map(Payment::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return revenueRollupService.getTotal(RevenueBucket.Metric.PAYMENT_REVENUE, startDate, endDate);
+    }
+    
+    /**
+     * Count and amount per payment method, with a per-status breakdown,
+     * computed in one grouped aggregation. "total" only includes completed
+     * payments. Either date bound may be null.
+     */
+    public Map<String, Object> getPaymentMethodsSummary(LocalDateTime startDate, LocalDateTime endDate) {
+        List<LocalDateTime> cacheKey = Arrays.asList(startDate, endDate);
+        Map<String, Object> cached = methodsSummaryCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        
+        Criteria criteria = new Criteria();
+        if (startDate != null || endDate != null) {
+            criteria = Criteria.where("paymentDate");
+            if (startDate != null) {
+                criteria = criteria.gte(startDate);
+            }
+            if (endDate != null) {
+                criteria = criteria.lte(endDate);
+            }
+        }
+        
+        // Amounts are stored as strings, so they are converted before summing
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(criteria),
+                Aggregation.group("paymentMethod", "status")
+                        .count().as("count")
+                        .sum(ConvertOperators.ToDecimal.toDecimal("$amount")).as("total"));
+        
+        Map<String, Map<String, Object>> methods = new LinkedHashMap<>();
+        for (Payment.PaymentMethod method : Payment.PaymentMethod.values()) {
+            Map<String, Object> methodSummary = new HashMap<>();
+            methodSummary.put("count", 0L);
+            methodSummary.put("total", BigDecimal.ZERO);
+            methodSummary.put("byStatus", new TreeMap<String, Object>());
+            methods.put(method.toString(), methodSummary);
+        }
+        
+        for (Document group : mongoTemplate.aggregate(aggregation, Payment.class, Document.class).getMappedResults()) {
+            Document id = group.get("_id", Document.class);
+            Map<String, Object> methodSummary = methods.get(id.getString("paymentMethod"));
+            if (methodSummary == null) {
+                continue;
+            }
+            
+            long count = ((Number) group.get("count")).longValue();
+            Object totalValue = group.get("total");
+            BigDecimal total = totalValue instanceof Decimal128 decimal ? decimal.bigDecimalValue() : BigDecimal.ZERO;
+            String status = id.getString("status");
+            
+            methodSummary.merge("count", count, (a, b) -> (Long) a + (Long) b);
+            if (Payment.PaymentStatus.COMPLETED.name().equals(status)) {
+                methodSummary.put("total", total);
+            }
+            
+            @SuppressWarnings("unchecked")
+            Map<String, Object> byStatus = (Map<String, Object>) methodSummary.get("byStatus");
+            byStatus.put(String.valueOf(status), Map.of("count", count, "total", total));
+        }
+        
+        Map<String, Object> summary = new LinkedHashMap<>(methods);
+        methodsSummaryCache.put(cacheKey, summary, System.currentTimeMillis() + methodsSummaryTtlMs);
+        return summary;
+    }
+    
+    public List<Map<String, Object>> rebuildRevenueRollups() {
+        return List.of(
+                revenueRollupService.rebuild(RevenueBucket.Metric.PAYMENT_REVENUE),
+                revenueRollupService.rebuild(RevenueBucket.Metric.PAYMENT_REFUNDS));
+    }
+    
+    public List<Map<String, Object>> checkRevenueRollups() {
+        return List.of(
+                revenueRollupService.check(RevenueBucket.Metric.PAYMENT_REVENUE),
+                revenueRollupService.check(RevenueBucket.Metric.PAYMENT_REFUNDS));
     }
 } 
\ No newline at end of file
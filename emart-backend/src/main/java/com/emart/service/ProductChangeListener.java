@@ -0,0 +1,14 @@
+package com.emart.service;
+
+import com.emart.model.Product;
+
+/**
+ * Receives every product write made through {@link ProductService} so that
+ * in-memory views of the catalog can be maintained incrementally.
+ */
+public interface ProductChangeListener {
+
+    void onProductSaved(Product product);
+
+    void onProductDeleted(Product product);
+}
@@ -0,0 +1,116 @@
+package com.emart.service;
+
+import com.emart.model.Product;
+import com.emart.util.HierarchicalTimingWheel;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps every product that can still expire in a timing wheel keyed by the
+ * moment its bestBefore date has passed (midnight at the start of the next
+ * day). The wheel is loaded once at startup and kept current from product
+ * change events, so finding the products due to expire never needs a query.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductExpiryTracker implements ProductChangeListener {
+
+    static final Set<Product.ProductStatus> EXPIRABLE_STATUSES = EnumSet.of(
+            Product.ProductStatus.PENDING, Product.ProductStatus.APPROVED, Product.ProductStatus.OUT_OF_STOCK);
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${app.product-expiry.tick-ms:60000}")
+    private long tickMs;
+
+    @Value("${app.product-expiry.wheel-size:64}")
+    private int wheelSize;
+
+    private HierarchicalTimingWheel<String> wheel;
+
+    @PostConstruct
+    void initWheel() {
+        wheel = new HierarchicalTimingWheel<>(tickMs, wheelSize, System.currentTimeMillis());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Query query = Query.query(Criteria.where("status").in(EXPIRABLE_STATUSES)
+                .and("bestBefore").ne(null));
+        query.fields().include("_id", "bestBefore", "status");
+
+        List<Product> products = mongoTemplate.find(query, Product.class);
+        products.forEach(this::track);
+
+        log.info("Product expiry wheel loaded with {} products", wheel.size());
+    }
+
+    @Override
+    public void onProductSaved(Product product) {
+        if (product.getId() != null) {
+            track(product);
+        }
+    }
+
+    @Override
+    public void onProductDeleted(Product product) {
+        wheel.cancel(product.getId());
+    }
+
+    /**
+     * Returns the ids of products whose bestBefore date has passed since the
+     * previous call. Each id is returned once.
+     */
+    public List<String> pollDue() {
+        return wheel.advance(System.currentTimeMillis());
+    }
+
+    /**
+     * Makes ids returned by {@link #pollDue()} due again on the next poll,
+     * after they could not be processed. An id that a change event has given
+     * a new deadline in the meantime keeps that deadline.
+     */
+    public void retry(Collection<String> productIds) {
+        long now = System.currentTimeMillis();
+        productIds.forEach(productId -> wheel.scheduleIfAbsent(productId, now));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tracked", wheel.size());
+        stats.put("levels", wheel.levelCount());
+        stats.put("tickMs", tickMs);
+        stats.put("wheelSize", wheelSize);
+        return stats;
+    }
+
+    private void track(Product product) {
+        if (product.getBestBefore() == null || !EXPIRABLE_STATUSES.contains(product.getStatus())) {
+            wheel.cancel(product.getId());
+            return;
+        }
+        wheel.schedule(product.getId(), expiresAtMillis(product.getBestBefore()));
+    }
+
+    private long expiresAtMillis(LocalDate bestBefore) {
+        return bestBefore.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
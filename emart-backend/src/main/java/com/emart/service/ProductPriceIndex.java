@@ -0,0 +1,111 @@
+package com.emart.service;
+
+import com.emart.model.Product;
+import com.emart.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Sorted index of APPROVED products by their exact price, so price-range
+ * queries cost O(log n + k) instead of a full scan. Prices are compared by
+ * value, never rounded, so the bounds match what the Mongo query matched.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductPriceIndex implements ProductChangeListener {
+
+    private final ProductRepository productRepository;
+
+    // A null product id sorts after every real one and only ever appears as a range bound
+    private final NavigableSet<PriceEntry> entries = new ConcurrentSkipListSet<>(
+            Comparator.comparing(PriceEntry::price)
+                    .thenComparing(PriceEntry::productId, Comparator.nullsLast(Comparator.naturalOrder())));
+    private final Map<String, PriceEntry> entriesById = new ConcurrentHashMap<>();
+    private final Map<String, Product> products = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        List<Product> approvedProducts = productRepository.findByStatus(Product.ProductStatus.APPROVED);
+
+        entries.clear();
+        entriesById.clear();
+        products.clear();
+        approvedProducts.stream().filter(product -> product.getPrice() != null).forEach(this::put);
+
+        log.info("Product price index built with {} approved products", entriesById.size());
+    }
+
+    @Override
+    public synchronized void onProductSaved(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+
+        remove(product.getId());
+        if (product.getStatus() == Product.ProductStatus.APPROVED && product.getPrice() != null) {
+            put(product);
+        }
+    }
+
+    @Override
+    public synchronized void onProductDeleted(Product product) {
+        remove(product.getId());
+    }
+
+    public List<Product> findByPriceRange(BigDecimal minPrice, BigDecimal maxPrice,
+                                          int offset, int limit, boolean descending) {
+        if (minPrice.compareTo(maxPrice) > 0 || limit <= 0) {
+            return List.of();
+        }
+
+        // The empty id sorts before and the null id after every product at the boundary prices
+        NavigableSet<PriceEntry> range = entries.subSet(
+                new PriceEntry(minPrice, ""), true, new PriceEntry(maxPrice, null), true);
+        Iterator<PriceEntry> iterator = descending ? range.descendingIterator() : range.iterator();
+
+        for (int skipped = 0; skipped < offset && iterator.hasNext(); skipped++) {
+            iterator.next();
+        }
+
+        List<Product> results = new ArrayList<>(Math.min(limit, 64));
+        while (results.size() < limit && iterator.hasNext()) {
+            Product product = products.get(iterator.next().productId());
+            if (product != null) {
+                results.add(product);
+            }
+        }
+        return results;
+    }
+
+    private void put(Product product) {
+        PriceEntry entry = new PriceEntry(product.getPrice(), product.getId());
+        products.put(product.getId(), product);
+        entriesById.put(product.getId(), entry);
+        entries.add(entry);
+    }
+
+    private void remove(String productId) {
+        PriceEntry existing = entriesById.remove(productId);
+        if (existing != null) {
+            entries.remove(existing);
+        }
+        products.remove(productId);
+    }
+
+    private record PriceEntry(BigDecimal price, String productId) {
+    }
+}
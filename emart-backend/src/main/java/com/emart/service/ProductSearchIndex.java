@@ -0,0 +1,322 @@
+package com.emart.service;
+
+import com.emart.model.Product;
+import com.emart.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index over product name, description and barcode.
+ * Postings are keyed by a one-character field kind followed by the term, so
+ * a single map holds words, prefixes (edge n-grams) and name trigrams.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchIndex implements ProductChangeListener {
+
+    private static final char NAME_WORD = 'w';
+    private static final char NAME_PREFIX = 'p';
+    private static final char NAME_TRIGRAM = 'g';
+    private static final char DESCRIPTION_WORD = 'd';
+    private static final char DESCRIPTION_PREFIX = 'e';
+    private static final char BARCODE_PREFIX = 'b';
+
+    private static final int NAME_WORD_WEIGHT = 10;
+    private static final int BARCODE_WEIGHT = 8;
+    private static final int NAME_PREFIX_WEIGHT = 6;
+    private static final int NAME_INFIX_WEIGHT = 3;
+    private static final int DESCRIPTION_WORD_WEIGHT = 2;
+    private static final int DESCRIPTION_PREFIX_WEIGHT = 1;
+
+    private static final int MAX_PREFIX_LENGTH = 20;
+    private static final int MIN_NAME_PREFIX_LENGTH = 2;
+    private static final int MIN_DESCRIPTION_PREFIX_LENGTH = 3;
+    private static final int MIN_BARCODE_PREFIX_LENGTH = 3;
+
+    private final ProductRepository productRepository;
+
+    private final Map<String, Map<String, Integer>> postings = new HashMap<>();
+    private final Map<String, IndexedProduct> documents = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Rebuild and change events are serialized on this instance, so a change that arrives
+    // while the rebuild is reading Mongo is applied after it instead of being overwritten
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        List<Product> products = productRepository.findAll();
+
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            products.forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("Product search index built with {} products and {} terms", products.size(), postings.size());
+    }
+
+    @Override
+    public synchronized void onProductSaved(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            remove(product.getId());
+            add(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public synchronized void onProductDeleted(Product product) {
+        lock.writeLock().lock();
+        try {
+            remove(product.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Product> search(String query, int offset, int limit) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<String, Integer> scores = null;
+            for (String token : queryTokens) {
+                Map<String, Integer> tokenScores = match(token);
+
+                // Every query token has to match somewhere in the product
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    Map<String, Integer> combined = new HashMap<>();
+                    for (Map.Entry<String, Integer> entry : scores.entrySet()) {
+                        Integer score = tokenScores.get(entry.getKey());
+                        if (score != null) {
+                            combined.put(entry.getKey(), entry.getValue() + score);
+                        }
+                    }
+                    scores = combined;
+                }
+
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            return topResults(scores, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, Integer> match(String token) {
+        Map<String, Integer> scores = new HashMap<>();
+
+        collect(scores, NAME_WORD + token, NAME_WORD_WEIGHT);
+        collect(scores, BARCODE_PREFIX + token, BARCODE_WEIGHT);
+        if (token.length() <= MAX_PREFIX_LENGTH) {
+            collect(scores, NAME_PREFIX + token, NAME_PREFIX_WEIGHT);
+            collect(scores, DESCRIPTION_PREFIX + token, DESCRIPTION_PREFIX_WEIGHT);
+        }
+        collect(scores, DESCRIPTION_WORD + token, DESCRIPTION_WORD_WEIGHT);
+
+        // Substring matches inside the name are resolved through trigram intersection
+        if (token.length() >= 3) {
+            for (String productId : trigramCandidates(token)) {
+                IndexedProduct document = documents.get(productId);
+                if (document != null && document.normalizedName().contains(token)) {
+                    scores.merge(productId, NAME_INFIX_WEIGHT, Math::max);
+                }
+            }
+        }
+
+        return scores;
+    }
+
+    private void collect(Map<String, Integer> scores, String key, int weight) {
+        Map<String, Integer> posting = postings.get(key);
+        if (posting == null) {
+            return;
+        }
+        for (String productId : posting.keySet()) {
+            scores.merge(productId, weight, Math::max);
+        }
+    }
+
+    private List<String> trigramCandidates(String token) {
+        Map<String, Integer> smallest = null;
+        List<Map<String, Integer>> lists = new ArrayList<>();
+
+        for (int i = 0; i + 3 <= token.length(); i++) {
+            Map<String, Integer> posting = postings.get(NAME_TRIGRAM + token.substring(i, i + 3));
+            if (posting == null) {
+                return List.of();
+            }
+            lists.add(posting);
+            if (smallest == null || posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+
+        List<String> candidates = new ArrayList<>();
+        for (String productId : smallest.keySet()) {
+            boolean inAll = true;
+            for (Map<String, Integer> posting : lists) {
+                if (posting != smallest && !posting.containsKey(productId)) {
+                    inAll = false;
+                    break;
+                }
+            }
+            if (inAll) {
+                candidates.add(productId);
+            }
+        }
+        return candidates;
+    }
+
+    private List<Product> topResults(Map<String, Integer> scores, int offset, int limit) {
+        Comparator<Map.Entry<String, Integer>> ranking = Comparator
+                .<Map.Entry<String, Integer>>comparingInt(Map.Entry::getValue).reversed()
+                .thenComparing(entry -> documents.get(entry.getKey()).normalizedName())
+                .thenComparing(Map.Entry::getKey);
+
+        // Keep only the best offset + limit entries instead of sorting every hit
+        int wanted = offset + limit;
+        PriorityQueue<Map.Entry<String, Integer>> heap = new PriorityQueue<>(ranking.reversed());
+        for (Map.Entry<String, Integer> entry : scores.entrySet()) {
+            heap.offer(entry);
+            if (heap.size() > wanted) {
+                heap.poll();
+            }
+        }
+
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>(heap);
+        ranked.sort(ranking);
+
+        if (offset >= ranked.size()) {
+            return List.of();
+        }
+
+        List<Product> results = new ArrayList<>(Math.min(limit, ranked.size() - offset));
+        for (Map.Entry<String, Integer> entry : ranked.subList(offset, ranked.size())) {
+            results.add(documents.get(entry.getKey()).product());
+        }
+        return results;
+    }
+
+    private void add(Product product) {
+        // Expired stock is off the shelves for good
+        if (product.getStatus() == Product.ProductStatus.EXPIRED) {
+            return;
+        }
+
+        Map<String, Integer> terms = new HashMap<>();
+
+        for (String token : tokenize(product.getName())) {
+            terms.merge(NAME_WORD + token, NAME_WORD_WEIGHT, Math::max);
+            // Single letters would post most of the catalogue under one key
+            for (int length = MIN_NAME_PREFIX_LENGTH; length <= Math.min(token.length(), MAX_PREFIX_LENGTH); length++) {
+                terms.merge(NAME_PREFIX + token.substring(0, length), NAME_PREFIX_WEIGHT, Math::max);
+            }
+            for (int i = 0; i + 3 <= token.length(); i++) {
+                terms.merge(NAME_TRIGRAM + token.substring(i, i + 3), NAME_INFIX_WEIGHT, Math::max);
+            }
+        }
+
+        for (String token : tokenize(product.getDescription())) {
+            terms.merge(DESCRIPTION_WORD + token, DESCRIPTION_WORD_WEIGHT, Math::max);
+            for (int length = MIN_DESCRIPTION_PREFIX_LENGTH; length <= Math.min(token.length(), MAX_PREFIX_LENGTH); length++) {
+                terms.merge(DESCRIPTION_PREFIX + token.substring(0, length), DESCRIPTION_PREFIX_WEIGHT, Math::max);
+            }
+        }
+
+        if (product.getBarcode() != null) {
+            String barcode = product.getBarcode().toLowerCase(Locale.ROOT);
+            for (int length = MIN_BARCODE_PREFIX_LENGTH; length <= barcode.length(); length++) {
+                terms.merge(BARCODE_PREFIX + barcode.substring(0, length), BARCODE_WEIGHT, Math::max);
+            }
+        }
+
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), key -> new HashMap<>()).put(product.getId(), term.getValue());
+        }
+
+        String normalizedName = product.getName() == null ? "" : product.getName().toLowerCase(Locale.ROOT);
+        documents.put(product.getId(), new IndexedProduct(product, normalizedName, terms.keySet().toArray(String[]::new)));
+    }
+
+    private void remove(String productId) {
+        IndexedProduct existing = documents.remove(productId);
+        if (existing == null) {
+            return;
+        }
+
+        for (String term : existing.terms()) {
+            Map<String, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return Collections.emptyList();
+        }
+
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    private record IndexedProduct(Product product, String normalizedName, String[] terms) {
+    }
+}
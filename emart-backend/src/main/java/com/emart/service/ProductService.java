@@ -4,14 +4,36 @@ import com.emart.model.Product;
 import com.emart.model.User;
 import com.emart.repository.ProductRepository;
 import com.emart.repository.UserRepository;
+import com.emart.util.CursorPage;
+import com.mongodb.bulk.BulkWriteResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.SetOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
@@ -22,6 +44,23 @@ public class ProductService {
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
     private final BarcodeService barcodeService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductPriceIndex productPriceIndex;
+    private final List<ProductChangeListener> productChangeListeners;
+    private final MongoTemplate mongoTemplate;
+    private final CursorPager cursorPager;
+    private final ProductExpiryTracker productExpiryTracker;
+    private final CatalogSnapshot catalogSnapshot;
+    
+    @Value("${app.product-expiry.batch-size:500}")
+    private int expiryBatchSize;
+    
+    @Value("${app.stock-reservations.abandon-after-ms:600000}")
+    private long reservationAbandonAfterMs;
+    
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final int MAX_PRICE_RANGE_RESULTS = 500;
+    private static final String RESERVATIONS_FIELD = "stockReservations";
     
     public Product createProduct(Product product, String supplierId) {
         // Validate supplier exists
@@ -33,11 +72,11 @@ public class ProductService {
         }
         
         // Generate unique barcode
-        String barcode = generateUniqueBarcode(product.getName());
+        String barcode = barcodeService.generateBarcode(product.getName());
         product.setBarcode(barcode);
         
         // Set supplier information
-        product.setSupplier(supplier);
+        product.setSupplierId(supplier.getId());
         product.setSupplierName(supplier.getFirstName() + " " + supplier.getLastName());
         product.setSupplierEmail(supplier.getEmail());
         
@@ -46,7 +85,7 @@ public class ProductService {
         product.setCreatedAt(LocalDateTime.now());
         product.setUpdatedAt(LocalDateTime.now());
         
-        return productRepository.save(product);
+        return saveAndPublish(product);
     }
     
     public Product approveProduct(String productId, String adminId) {
@@ -66,7 +105,7 @@ public class ProductService {
         product.setApprovedAt(LocalDateTime.now());
         product.setUpdatedAt(LocalDateTime.now());
         
-        return productRepository.save(product);
+        return saveAndPublish(product);
     }
     
     public Product rejectProduct(String productId, String adminId, String reason) {
@@ -86,7 +125,7 @@ public class ProductService {
         product.setApprovedAt(LocalDateTime.now());
         product.setUpdatedAt(LocalDateTime.now());
         
-        return productRepository.save(product);
+        return saveAndPublish(product);
     }
     
     public Product updateProduct(String productId, Product productDetails, String supplierId) {
@@ -94,7 +133,7 @@ public class ProductService {
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         
         // Check if product belongs to supplier
-        if (product.getSupplier() == null || !product.getSupplier().getId().equals(supplierId)) {
+        if (!supplierId.equals(product.getSupplierId())) {
             throw new RuntimeException("Product does not belong to this supplier");
         }
         
@@ -107,10 +146,14 @@ public class ProductService {
         product.setDescription(productDetails.getDescription());
         product.setPrice(productDetails.getPrice());
         product.setQuantity(productDetails.getQuantity());
+        if (!Objects.equals(product.getBestBefore(), productDetails.getBestBefore())) {
+            // A new expiry date deserves its own alert
+            product.setExpiryAlertedAt(null);
+        }
         product.setBestBefore(productDetails.getBestBefore());
         product.setUpdatedAt(LocalDateTime.now());
         
-        return productRepository.save(product);
+        return saveAndPublish(product);
     }
     
     public void deleteProduct(String productId, String supplierId) {
@@ -118,7 +161,7 @@ public class ProductService {
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         
         // Check if product belongs to supplier
-        if (product.getSupplier() == null || !product.getSupplier().getId().equals(supplierId)) {
+        if (!supplierId.equals(product.getSupplierId())) {
             throw new RuntimeException("Product does not belong to this supplier");
         }
         
@@ -128,6 +171,7 @@ public class ProductService {
         }
         
         productRepository.delete(product);
+        productChangeListeners.forEach(listener -> listener.onProductDeleted(product));
     }
     
     public Product getProductById(String productId) {
@@ -144,14 +188,32 @@ public class ProductService {
         return productRepository.findAll();
     }
     
+    public CursorPage<Product> getProductsPage(String cursor, Integer limit) {
+        return cursorPager.page(Product.class, Product::getId, cursor, limit);
+    }
+    
     public List<Product> getProductsByStatus(Product.ProductStatus status) {
         return productRepository.findByStatus(status);
     }
     
     public List<Product> getProductsBySupplier(String supplierId) {
-        User supplier = userRepository.findById(supplierId)
-                .orElseThrow(() -> new RuntimeException("Supplier not found"));
-        return productRepository.findBySupplier(supplier);
+        return productRepository.findBySupplierId(supplierId);
+    }
+    
+    /**
+     * Rewrites the supplier snapshot on every product of the given user after
+     * their name or email changes.
+     */
+    public void refreshSupplierSnapshot(User supplier) {
+        Query query = Query.query(Criteria.where("supplierId").is(supplier.getId()));
+        Update update = new Update()
+                .set("supplierName", supplier.getFirstName() + " " + supplier.getLastName())
+                .set("supplierEmail", supplier.getEmail());
+        
+        if (mongoTemplate.updateMulti(query, update, Product.class).getModifiedCount() > 0) {
+            mongoTemplate.find(query, Product.class)
+                    .forEach(product -> productChangeListeners.forEach(listener -> listener.onProductSaved(product)));
+        }
     }
     
     public List<Product> getPendingProducts() {
@@ -166,6 +228,14 @@ public class ProductService {
         return productRepository.findAvailableProducts();
     }
     
+    /**
+     * The approved or available listing as pre-serialized JSON, served from
+     * memory and kept current by this service's change events.
+     */
+    public CatalogSnapshot.Listing getCatalogListing(CatalogSnapshot.View view) {
+        return catalogSnapshot.getListing(view);
+    }
+    
     public List<Product> getExpiredProducts() {
         return productRepository.findExpiredProducts(LocalDate.now());
     }
@@ -179,27 +249,140 @@ public class ProductService {
     }
     
     public Product updateStock(String productId, int quantity) {
-        Product product = getProductById(productId);
-        
-        if (product.getStatus() != Product.ProductStatus.APPROVED) {
-            throw new RuntimeException("Cannot update stock for non-approved product");
+        Criteria guard = Criteria.where("_id").is(productId)
+                .and("status").is(Product.ProductStatus.APPROVED);
+        if (quantity < 0) {
+            guard = guard.and("quantity").gte(-quantity);
         }
         
-        int newQuantity = product.getQuantity() + quantity;
-        if (newQuantity < 0) {
+        Product product = mongoTemplate.findAndModify(
+                Query.query(guard),
+                stockAdjustment(quantity, Product.ProductStatus.APPROVED),
+                FindAndModifyOptions.options().returnNew(true),
+                Product.class);
+        
+        if (product == null) {
+            // Work out which precondition failed only on the error path
+            Product current = getProductById(productId);
+            if (current.getStatus() != Product.ProductStatus.APPROVED) {
+                throw new RuntimeException("Cannot update stock for non-approved product");
+            }
             throw new RuntimeException("Insufficient stock");
         }
         
-        product.setQuantity(newQuantity);
+        productChangeListeners.forEach(listener -> listener.onProductSaved(product));
+        return product;
+    }
+    
+    public void reserveStock(Map<String, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        quantities.forEach((productId, quantity) -> {
+            if (quantity == null || quantity <= 0) {
+                throw new RuntimeException("Quantity must be positive for product: " + productId);
+            }
+        });
+        
+        // Each line is tagged with the reservation id so a partial failure can be undone precisely;
+        // the ObjectId also dates the reservation for releaseAbandonedReservations
+        String marker = RESERVATIONS_FIELD + "." + new ObjectId().toHexString();
         
-        // Update status if out of stock
-        if (newQuantity == 0) {
-            product.setStatus(Product.ProductStatus.OUT_OF_STOCK);
+        BulkOperations reservations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        quantities.forEach((productId, quantity) -> {
+            Query guard = Query.query(Criteria.where("_id").is(productId)
+                    .and("status").is(Product.ProductStatus.APPROVED)
+                    .and("quantity").gte(quantity));
+            reservations.updateOne(guard, stockAdjustment(-quantity, Product.ProductStatus.APPROVED)
+                    .set(SetOperation.set(marker).toValue(quantity)));
+        });
+        
+        BulkWriteResult result;
+        try {
+            result = reservations.execute();
+        } catch (RuntimeException e) {
+            // An unordered bulk can fail after applying some of its lines
+            try {
+                undoReservation(marker, quantities);
+            } catch (RuntimeException undoFailure) {
+                // The lines keep their marker and are released by the abandoned reservation sweep
+                e.addSuppressed(undoFailure);
+            }
+            log.warn("Stock reservation for {} products failed: {}", quantities.size(), e.getMessage());
+            throw e;
         }
         
-        product.setUpdatedAt(LocalDateTime.now());
+        if (result.getModifiedCount() < quantities.size()) {
+            undoReservation(marker, quantities);
+            
+            log.warn("Stock reservation failed for {} of {} products", 
+                    quantities.size() - result.getModifiedCount(), quantities.size());
+            throw new RuntimeException("Insufficient stock for one or more products");
+        }
+        
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(quantities.keySet())),
+                new Update().unset(marker),
+                Product.class);
+        
+        publishProductChanges(quantities.keySet());
+    }
+    
+    /**
+     * Gives back stock held by reservations that were never completed or
+     * undone, because the process died or lost Mongo part way through
+     * reserveStock. A completed reservation clears its markers before the
+     * order is written, so any marker older than the abandon timeout belongs
+     * to stock that no order holds.
+     */
+    @Scheduled(fixedDelayString = "${app.stock-reservations.sweep-interval-ms:300000}")
+    public void releaseAbandonedReservations() {
+        long cutoff = System.currentTimeMillis() - reservationAbandonAfterMs;
         
-        return productRepository.save(product);
+        // Empty reservation objects sort below every non-empty one, so this reads only products with markers
+        Query query = Query.query(Criteria.where(RESERVATIONS_FIELD).gt(new Document()));
+        query.fields().include(RESERVATIONS_FIELD);
+        List<Document> reserved = mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(Product.class));
+        
+        BulkOperations releases = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        List<String> released = new ArrayList<>();
+        for (Document product : reserved) {
+            String productId = product.get("_id").toString();
+            product.get(RESERVATIONS_FIELD, Document.class).forEach((reservationId, quantity) -> {
+                if (!ObjectId.isValid(reservationId)
+                        || new ObjectId(reservationId).getDate().getTime() > cutoff) {
+                    return;
+                }
+                String marker = RESERVATIONS_FIELD + "." + reservationId;
+                releases.updateOne(
+                        Query.query(Criteria.where("_id").is(productId).and(marker).exists(true)),
+                        stockAdjustment(((Number) quantity).intValue(), Product.ProductStatus.OUT_OF_STOCK).unset(marker));
+                released.add(productId);
+            });
+        }
+        
+        if (released.isEmpty()) {
+            return;
+        }
+        BulkWriteResult result = releases.execute();
+        publishProductChanges(released);
+        
+        log.warn("Released {} abandoned stock reservations", result.getModifiedCount());
+    }
+    
+    public void releaseStock(Map<String, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        
+        BulkOperations releases = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        quantities.forEach((productId, quantity) -> releases.updateOne(
+                Query.query(Criteria.where("_id").is(productId)
+                        .and("status").in(Product.ProductStatus.APPROVED, Product.ProductStatus.OUT_OF_STOCK)),
+                stockAdjustment(quantity, Product.ProductStatus.OUT_OF_STOCK)));
+        releases.execute();
+        
+        publishProductChanges(quantities.keySet());
     }
     
     public boolean checkStockAvailability(String productId, int requestedQuantity) {
@@ -208,33 +391,102 @@ public class ProductService {
                product.getQuantity() >= requestedQuantity;
     }
     
-    private String generateUniqueBarcode(String productName) {
-        String baseBarcode = barcodeService.generateBarcode(productName);
-        String barcode = baseBarcode;
-        int counter = 1;
+    public List<Product> searchProducts(String searchTerm) {
+        return productSearchIndex.search(searchTerm, 0, Integer.MAX_VALUE);
+    }
+    
+    public List<Product> searchProducts(String searchTerm, int offset, int limit) {
+        return productSearchIndex.search(searchTerm, Math.max(offset, 0), Math.min(limit, MAX_SEARCH_RESULTS));
+    }
+    
+    public List<Product> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, boolean descending) {
+        return productPriceIndex.findByPriceRange(minPrice, maxPrice, 0, Integer.MAX_VALUE, descending);
+    }
+    
+    public List<Product> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice,
+                                                 int offset, int limit, boolean descending) {
+        return productPriceIndex.findByPriceRange(minPrice, maxPrice, Math.max(offset, 0),
+                Math.min(limit, MAX_PRICE_RANGE_RESULTS), descending);
+    }
+    
+    /**
+     * Marks the products the expiry wheel reports as past their bestBefore
+     * date EXPIRED, in batches, and republishes them so the catalog indexes
+     * drop them.
+     */
+    @Scheduled(fixedDelayString = "${app.product-expiry.tick-ms:60000}")
+    public void expireDueProducts() {
+        List<String> due = productExpiryTracker.pollDue();
+        if (due.isEmpty()) {
+            return;
+        }
         
-        // Ensure uniqueness
-        while (productRepository.existsByBarcode(barcode)) {
-            barcode = baseBarcode + "_" + counter;
-            counter++;
+        Date now = new Date();
+        long expired = 0;
+        int from = 0;
+        try {
+            for (; from < due.size(); from += expiryBatchSize) {
+                List<String> batch = due.subList(from, Math.min(from + expiryBatchSize, due.size()));
+                
+                // Re-check against the stored document in case it changed after it was scheduled
+                expired += mongoTemplate.updateMulti(
+                        Query.query(Criteria.where("_id").in(batch)
+                                .and("status").in(ProductExpiryTracker.EXPIRABLE_STATUSES)
+                                .and("bestBefore").lt(LocalDate.now())),
+                        new Update().set("status", Product.ProductStatus.EXPIRED).set("updatedAt", now),
+                        Product.class).getModifiedCount();
+                
+                publishProductChanges(batch);
+            }
+        } catch (RuntimeException e) {
+            // The wheel already handed these ids out; put the unfinished ones back so the next tick retries them
+            List<String> unfinished = due.subList(from, due.size());
+            productExpiryTracker.retry(unfinished);
+            log.error("Expiring products failed after {} of {}, {} rescheduled: {}",
+                    from, due.size(), unfinished.size(), e.getMessage());
+            return;
         }
         
-        return barcode;
+        log.info("Marked {} of {} due products as expired", expired, due.size());
     }
     
-    public List<Product> searchProducts(String searchTerm) {
-        // This would typically use a more sophisticated search
-        // For now, we'll search by name containing the term
-        return productRepository.findAll().stream()
-                .filter(product -> product.getName().toLowerCase().contains(searchTerm.toLowerCase()))
-                .toList();
+    private AggregationUpdate stockAdjustment(int delta, Product.ProductStatus restockedFrom) {
+        // Pipeline update: every expression sees the pre-update document, so the
+        // quantity change and the stock status flip happen in the same operation
+        return AggregationUpdate.update()
+                .set(SetOperation.set("quantity").toValueOf(ArithmeticOperators.valueOf("quantity").add(delta))
+                        .and().set("status").toValueOf(stockStatus(delta, restockedFrom))
+                        .and().set("updatedAt").toValue(new Date()));
+    }
+    
+    private ConditionalOperators.Cond stockStatus(int delta, Product.ProductStatus restockedFrom) {
+        if (delta < 0) {
+            return ConditionalOperators.when(ComparisonOperators.valueOf("quantity").equalToValue(-delta))
+                    .then(Product.ProductStatus.OUT_OF_STOCK.name())
+                    .otherwiseValueOf("status");
+        }
+        return ConditionalOperators.when(ComparisonOperators.valueOf("status").equalToValue(restockedFrom.name()))
+                .then(Product.ProductStatus.APPROVED.name())
+                .otherwiseValueOf("status");
+    }
+    
+    // Marker-guarded, so each line is restored at most once whoever gets there first
+    private void undoReservation(String marker, Map<String, Integer> quantities) {
+        BulkOperations compensation = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        quantities.forEach((productId, quantity) -> compensation.updateOne(
+                Query.query(Criteria.where("_id").is(productId).and(marker).exists(true)),
+                stockAdjustment(quantity, Product.ProductStatus.OUT_OF_STOCK).unset(marker)));
+        compensation.execute();
+    }
+    
+    private void publishProductChanges(Collection<String> productIds) {
+        productRepository.findAllById(productIds)
+                .forEach(product -> productChangeListeners.forEach(listener -> listener.onProductSaved(product)));
     }
     
-    public List<Product> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
-        return productRepository.findAll().stream()
-                .filter(product -> product.getStatus() == Product.ProductStatus.APPROVED)
-                .filter(product -> product.getPrice().compareTo(minPrice) >= 0 && 
-                                 product.getPrice().compareTo(maxPrice) <= 0)
-                .toList();
+    private Product saveAndPublish(Product product) {
+        Product savedProduct = productRepository.save(product);
+        productChangeListeners.forEach(listener -> listener.onProductSaved(savedProduct));
+        return savedProduct;
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,158 @@
+package com.emart.service;
+
+import com.emart.model.Product;
+import com.emart.model.User;
+import com.mongodb.DBRef;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Converts products written with the old {@code @DBRef supplier} field into
+ * the embedded supplier snapshot (supplierId, supplierName, supplierEmail).
+ * Only documents that still have a {@code supplier} field are touched, so it
+ * is safe to run on every startup.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSupplierMigration {
+
+    private static final String LEGACY_FIELD = "supplier";
+
+    private final MongoTemplate mongoTemplate;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductPriceIndex productPriceIndex;
+    private final CatalogSnapshot catalogSnapshot;
+
+    @Value("${app.migrations.product-supplier.on-startup:true}")
+    private boolean runOnStartup;
+
+    @Value("${app.migrations.product-supplier.batch-size:500}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (runOnStartup) {
+            migrate();
+        }
+    }
+
+    public Map<String, Object> migrate() {
+        Query legacy = Query.query(Criteria.where(LEGACY_FIELD).exists(true));
+        legacy.fields().include(LEGACY_FIELD).include("supplierName").include("supplierEmail");
+
+        long migrated = 0;
+        long missingSupplier = 0;
+        List<Document> batch = new ArrayList<>(batchSize);
+
+        try (Stream<Document> products = mongoTemplate.stream(legacy, Document.class,
+                mongoTemplate.getCollectionName(Product.class))) {
+            for (Document product : (Iterable<Document>) products::iterator) {
+                batch.add(product);
+                if (batch.size() == batchSize) {
+                    missingSupplier += migrateBatch(batch);
+                    migrated += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            missingSupplier += migrateBatch(batch);
+            migrated += batch.size();
+        }
+
+        if (migrated > 0) {
+            log.info("Migrated {} products to the embedded supplier snapshot ({} without a supplier)",
+                    migrated, missingSupplier);
+            // The in-memory indexes and catalog were loaded before the migration ran
+            productSearchIndex.rebuild();
+            productPriceIndex.rebuild();
+            catalogSnapshot.rebuild();
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("migrated", migrated);
+        result.put("missingSupplier", missingSupplier);
+        return result;
+    }
+
+    /**
+     * Resolves the referenced suppliers with one query per batch and rewrites
+     * the products with a single bulk write. Returns the number of products
+     * whose reference could not be resolved.
+     */
+    private long migrateBatch(List<Document> products) {
+        Map<Object, String> supplierIds = new HashMap<>();
+        for (Document product : products) {
+            Object id = referencedId(product.get(LEGACY_FIELD));
+            if (id != null) {
+                supplierIds.put(id, id.toString());
+            }
+        }
+
+        Map<String, User> suppliers = new HashMap<>();
+        if (!supplierIds.isEmpty()) {
+            mongoTemplate.find(Query.query(Criteria.where("_id").in(supplierIds.keySet())), User.class)
+                    .forEach(user -> suppliers.put(user.getId(), user));
+        }
+
+        long missing = 0;
+        BulkOperations updates = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        for (Document product : products) {
+            Object id = referencedId(product.get(LEGACY_FIELD));
+            Update update = new Update().unset(LEGACY_FIELD);
+
+            if (id != null) {
+                String supplierId = id.toString();
+                update.set("supplierId", supplierId);
+
+                User supplier = suppliers.get(supplierId);
+                if (supplier != null) {
+                    // The user document is the source of truth; the old copies may be stale
+                    update.set("supplierName", supplier.getFirstName() + " " + supplier.getLastName())
+                            .set("supplierEmail", supplier.getEmail());
+                } else {
+                    missing++;
+                }
+            } else {
+                missing++;
+            }
+
+            updates.updateOne(Query.query(Criteria.where("_id").is(product.get("_id"))), update);
+        }
+        updates.execute();
+
+        if (missing > 0) {
+            log.warn("{} migrated products reference a supplier that no longer exists", missing);
+        }
+        return missing;
+    }
+
+    private Object referencedId(Object reference) {
+        if (reference instanceof DBRef dbRef) {
+            return dbRef.getId();
+        }
+        // A DBRef read as a plain document
+        if (reference instanceof Document document) {
+            return document.get("$id");
+        }
+        return null;
+    }
+}
@@ -0,0 +1,339 @@
+package com.emart.service;
+
+import com.emart.model.Order;
+import com.emart.model.Payment;
+import com.emart.model.RevenueBucket;
+import com.emart.model.RevenueBucket.Granularity;
+import com.emart.model.RevenueBucket.Metric;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Revenue totals kept as per-hour, per-day and all-time buckets that are
+ * adjusted with $inc whenever an order or payment moves into or out of the
+ * status that counts towards a metric. Range queries sum whole days and
+ * hours from the buckets and only scan the raw collection for the partial
+ * hours at either end.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RevenueRollupService {
+    
+    private static final int MAX_REPORTED_MISMATCHES = 100;
+    
+    private final MongoTemplate mongoTemplate;
+    
+    public void recordOrderPaymentStatusChange(Order order, Order.PaymentStatus previous, Order.PaymentStatus current) {
+        apply(Metric.ORDER_REVENUE, previous == Order.PaymentStatus.PAID, current == Order.PaymentStatus.PAID,
+                order.getOrderDate(), order.getTotal());
+    }
+    
+    public void recordPaymentStatusChange(Payment payment, Payment.PaymentStatus previous, Payment.PaymentStatus current) {
+        apply(Metric.PAYMENT_REVENUE, previous == Payment.PaymentStatus.COMPLETED, current == Payment.PaymentStatus.COMPLETED,
+                payment.getPaymentDate(), payment.getAmount());
+        apply(Metric.PAYMENT_REFUNDS, previous == Payment.PaymentStatus.REFUNDED, current == Payment.PaymentStatus.REFUNDED,
+                payment.getPaymentDate(), payment.getAmount());
+    }
+    
+    public BigDecimal getTotal(Metric metric) {
+        RevenueBucket total = mongoTemplate.findById(bucketId(metric, Granularity.TOTAL, null), RevenueBucket.class);
+        return total == null ? BigDecimal.ZERO : total.getAmount();
+    }
+    
+    /**
+     * Sums the metric for records dated between start and end, both inclusive.
+     */
+    public BigDecimal getTotal(Metric metric, LocalDateTime start, LocalDateTime end) {
+        if (end.isBefore(start)) {
+            return BigDecimal.ZERO;
+        }
+        
+        LocalDateTime firstHour = ceiling(start, ChronoUnit.HOURS);
+        LocalDateTime lastHour = end.truncatedTo(ChronoUnit.HOURS);
+        if (!firstHour.isBefore(lastHour)) {
+            return rawTotal(metric, start, end, true);
+        }
+        
+        // Partial hours at the edges come from the raw records, everything in between from buckets
+        BigDecimal total = rawTotal(metric, start, firstHour, false)
+                .add(rawTotal(metric, lastHour, end, true));
+        
+        LocalDateTime firstDay = ceiling(firstHour, ChronoUnit.DAYS);
+        LocalDateTime lastDay = lastHour.truncatedTo(ChronoUnit.DAYS);
+        if (firstDay.isBefore(lastDay)) {
+            total = total.add(bucketTotal(metric, Granularity.HOUR, firstHour, firstDay))
+                    .add(bucketTotal(metric, Granularity.DAY, firstDay, lastDay))
+                    .add(bucketTotal(metric, Granularity.HOUR, lastDay, lastHour));
+        } else {
+            total = total.add(bucketTotal(metric, Granularity.HOUR, firstHour, lastHour));
+        }
+        return total;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillMissing() {
+        for (Metric metric : Metric.values()) {
+            if (!mongoTemplate.exists(Query.query(Criteria.where("_id").is(bucketId(metric, Granularity.TOTAL, null))),
+                    RevenueBucket.class)) {
+                rebuild(metric);
+            }
+        }
+    }
+    
+    /**
+     * Recomputes every bucket of the metric from the raw records. Status
+     * changes that land while the scan is running can be lost, so run it
+     * when traffic is quiet and confirm with {@link #check(Metric)}.
+     */
+    public Map<String, Object> rebuild(Metric metric) {
+        RawTotals raw = scan(metric);
+        LocalDateTime now = LocalDateTime.now();
+        
+        mongoTemplate.remove(Query.query(Criteria.where("metric").is(metric)), RevenueBucket.class);
+        
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, RevenueBucket.class);
+        raw.hours.forEach((hour, sum) -> bulk.upsert(byId(metric, Granularity.HOUR, hour), replacement(metric, Granularity.HOUR, hour, sum, now)));
+        raw.days.forEach((day, sum) -> bulk.upsert(byId(metric, Granularity.DAY, day), replacement(metric, Granularity.DAY, day, sum, now)));
+        bulk.upsert(byId(metric, Granularity.TOTAL, null), replacement(metric, Granularity.TOTAL, null, raw.total, now));
+        bulk.execute();
+        
+        log.info("Rebuilt {} rollups: {} hours, {} days, total {}", metric, raw.hours.size(), raw.days.size(), raw.total.amount);
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("metric", metric);
+        result.put("hourBuckets", raw.hours.size());
+        result.put("dayBuckets", raw.days.size());
+        result.put("total", raw.total.amount);
+        result.put("count", raw.total.count);
+        return result;
+    }
+    
+    /**
+     * Compares the stored buckets with a full scan of the raw records and
+     * reports every bucket that disagrees.
+     */
+    public Map<String, Object> check(Metric metric) {
+        RawTotals raw = scan(metric);
+        
+        Map<String, RevenueBucket> stored = new HashMap<>();
+        mongoTemplate.find(Query.query(Criteria.where("metric").is(metric)), RevenueBucket.class)
+                .forEach(bucket -> stored.put(bucket.getId(), bucket));
+        
+        Map<String, Sum> expected = new LinkedHashMap<>();
+        expected.put(bucketId(metric, Granularity.TOTAL, null), raw.total);
+        raw.days.forEach((day, sum) -> expected.put(bucketId(metric, Granularity.DAY, day), sum));
+        raw.hours.forEach((hour, sum) -> expected.put(bucketId(metric, Granularity.HOUR, hour), sum));
+        
+        List<Map<String, Object>> mismatches = new ArrayList<>();
+        int mismatchCount = 0;
+        for (Map.Entry<String, Sum> entry : expected.entrySet()) {
+            RevenueBucket bucket = stored.remove(entry.getKey());
+            BigDecimal rollup = bucket == null ? BigDecimal.ZERO : bucket.getAmount();
+            if (rollup.compareTo(entry.getValue().amount) != 0) {
+                mismatchCount++;
+                if (mismatches.size() < MAX_REPORTED_MISMATCHES) {
+                    mismatches.add(Map.of("bucket", entry.getKey(), "rollup", rollup, "raw", entry.getValue().amount));
+                }
+            }
+        }
+        
+        // Buckets left over have no raw records behind them and must net to zero
+        for (RevenueBucket bucket : stored.values()) {
+            if (bucket.getAmount().signum() != 0) {
+                mismatchCount++;
+                if (mismatches.size() < MAX_REPORTED_MISMATCHES) {
+                    mismatches.add(Map.of("bucket", bucket.getId(), "rollup", bucket.getAmount(), "raw", BigDecimal.ZERO));
+                }
+            }
+        }
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("metric", metric);
+        result.put("rollupTotal", getTotal(metric));
+        result.put("rawTotal", raw.total.amount);
+        result.put("consistent", mismatchCount == 0);
+        result.put("mismatchCount", mismatchCount);
+        result.put("mismatches", mismatches);
+        return result;
+    }
+    
+    private void apply(Metric metric, boolean wasCounted, boolean isCounted, LocalDateTime date, BigDecimal amount) {
+        if (wasCounted == isCounted || amount == null) {
+            return;
+        }
+        
+        BigDecimal delta = isCounted ? amount : amount.negate();
+        int countDelta = isCounted ? 1 : -1;
+        LocalDateTime now = LocalDateTime.now();
+        
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, RevenueBucket.class);
+            bulk.upsert(byId(metric, Granularity.TOTAL, null), increment(metric, Granularity.TOTAL, null, delta, countDelta, now));
+            if (date != null) {
+                LocalDateTime hour = date.truncatedTo(ChronoUnit.HOURS);
+                LocalDateTime day = date.truncatedTo(ChronoUnit.DAYS);
+                bulk.upsert(byId(metric, Granularity.HOUR, hour), increment(metric, Granularity.HOUR, hour, delta, countDelta, now));
+                bulk.upsert(byId(metric, Granularity.DAY, day), increment(metric, Granularity.DAY, day, delta, countDelta, now));
+            }
+            bulk.execute();
+        } catch (Exception e) {
+            // The status change itself has been saved; the checker and rebuild repair the rollup
+            log.error("Failed to update {} rollup by {}: {}", metric, delta, e.getMessage());
+        }
+    }
+    
+    private Update increment(Metric metric, Granularity granularity, LocalDateTime bucketStart,
+                             BigDecimal delta, int countDelta, LocalDateTime now) {
+        return new Update()
+                .setOnInsert("metric", metric)
+                .setOnInsert("granularity", granularity)
+                .setOnInsert("bucketStart", bucketStart)
+                .inc("amount", new Decimal128(delta))
+                .inc("count", countDelta)
+                .set("updatedAt", now);
+    }
+    
+    private Update replacement(Metric metric, Granularity granularity, LocalDateTime bucketStart, Sum sum, LocalDateTime now) {
+        return new Update()
+                .set("metric", metric)
+                .set("granularity", granularity)
+                .set("bucketStart", bucketStart)
+                .set("amount", new Decimal128(sum.amount))
+                .set("count", sum.count)
+                .set("updatedAt", now);
+    }
+    
+    private BigDecimal bucketTotal(Metric metric, Granularity granularity, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return BigDecimal.ZERO;
+        }
+        Query query = Query.query(Criteria.where("metric").is(metric)
+                .and("granularity").is(granularity)
+                .and("bucketStart").gte(from).lt(to));
+        query.fields().include("amount");
+        
+        return mongoTemplate.find(query, RevenueBucket.class).stream()
+                .map(RevenueBucket::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+    
+    private BigDecimal rawTotal(Metric metric, LocalDateTime from, LocalDateTime to, boolean toInclusive) {
+        Criteria date = Criteria.where(source(metric).dateField()).gte(from);
+        date = toInclusive ? date.lte(to) : date.lt(to);
+        
+        String amountField = source(metric).amountField();
+        try (Stream<Document> records = streamRaw(metric, date)) {
+            return records.map(record -> decimal(record.get(amountField)))
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+        }
+    }
+    
+    private RawTotals scan(Metric metric) {
+        RawTotals totals = new RawTotals();
+        Source source = source(metric);
+        
+        try (Stream<Document> records = streamRaw(metric, null)) {
+            records.forEach(record -> {
+                BigDecimal amount = decimal(record.get(source.amountField()));
+                totals.total.add(amount);
+                
+                Date date = record.getDate(source.dateField());
+                if (date != null) {
+                    LocalDateTime dateTime = LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+                    totals.hours.computeIfAbsent(dateTime.truncatedTo(ChronoUnit.HOURS), key -> new Sum()).add(amount);
+                    totals.days.computeIfAbsent(dateTime.truncatedTo(ChronoUnit.DAYS), key -> new Sum()).add(amount);
+                }
+            });
+        }
+        return totals;
+    }
+    
+    private Stream<Document> streamRaw(Metric metric, Criteria dateCriteria) {
+        Source source = source(metric);
+        Criteria criteria = Criteria.where(source.statusField()).is(source.status());
+        if (dateCriteria != null) {
+            criteria = new Criteria().andOperator(criteria, dateCriteria);
+        }
+        
+        Query query = Query.query(criteria);
+        query.fields().include(source.dateField()).include(source.amountField());
+        return mongoTemplate.stream(query, Document.class, source.collection());
+    }
+    
+    private Source source(Metric metric) {
+        return switch (metric) {
+            case ORDER_REVENUE -> new Source("orders", "paymentStatus", Order.PaymentStatus.PAID.name(), "orderDate", "total");
+            case PAYMENT_REVENUE -> new Source("payments", "status", Payment.PaymentStatus.COMPLETED.name(), "paymentDate", "amount");
+            case PAYMENT_REFUNDS -> new Source("payments", "status", Payment.PaymentStatus.REFUNDED.name(), "paymentDate", "amount");
+        };
+    }
+    
+    private static BigDecimal decimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        if (value instanceof Decimal128 decimal128) {
+            return decimal128.bigDecimalValue();
+        }
+        // BigDecimal fields are stored as strings by default
+        return new BigDecimal(value.toString());
+    }
+    
+    private static LocalDateTime ceiling(LocalDateTime dateTime, ChronoUnit unit) {
+        LocalDateTime truncated = dateTime.truncatedTo(unit);
+        return truncated.equals(dateTime) ? truncated : truncated.plus(1, unit);
+    }
+    
+    private static Query byId(Metric metric, Granularity granularity, LocalDateTime bucketStart) {
+        return Query.query(Criteria.where("_id").is(bucketId(metric, granularity, bucketStart)));
+    }
+    
+    private static String bucketId(Metric metric, Granularity granularity, LocalDateTime bucketStart) {
+        return bucketStart == null
+                ? metric + ":" + granularity
+                : metric + ":" + granularity + ":" + bucketStart;
+    }
+    
+    private record Source(String collection, String statusField, String status, String dateField, String amountField) {
+    }
+    
+    private static final class Sum {
+        private BigDecimal amount = BigDecimal.ZERO;
+        private long count;
+        
+        private void add(BigDecimal value) {
+            amount = amount.add(value);
+            count++;
+        }
+    }
+    
+    private static final class RawTotals {
+        private final Sum total = new Sum();
+        private final Map<LocalDateTime, Sum> hours = new TreeMap<>();
+        private final Map<LocalDateTime, Sum> days = new TreeMap<>();
+    }
+}
@@ -0,0 +1,89 @@
+package com.emart.service;
+
+import com.emart.model.SequenceCounter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out increasing numbers per named sequence. Each instance leases a
+ * block of numbers from a Mongo counter document with a single
+ * findAndModify and serves it from memory, so numbers are unique across
+ * instances and roughly ordered; a restart abandons the rest of its block,
+ * leaving a gap.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SequenceService {
+    
+    public static final String ORDER_SEQUENCE = "order";
+    public static final String INVOICE_SEQUENCE = "invoice";
+    public static final String TRANSACTION_SEQUENCE = "transaction";
+    
+    private static final int NUMBER_WIDTH = 10;
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Value("${app.sequences.block-size:100}")
+    private int blockSize;
+    
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+    
+    public long next(String sequenceName) {
+        while (true) {
+            Block block = blocks.get(sequenceName);
+            if (block != null) {
+                long number = block.next.getAndIncrement();
+                if (number <= block.last) {
+                    return number;
+                }
+            }
+            leaseBlock(sequenceName, block);
+        }
+    }
+    
+    /**
+     * Returns the next number formatted as {@code PREFIX-0000000042}; the
+     * zero padding keeps the numbers sortable as strings.
+     */
+    public String nextNumber(String sequenceName, String prefix) {
+        String digits = Long.toString(next(sequenceName));
+        StringBuilder number = new StringBuilder(prefix.length() + 1 + Math.max(NUMBER_WIDTH, digits.length()))
+                .append(prefix).append('-');
+        for (int i = digits.length(); i < NUMBER_WIDTH; i++) {
+            number.append('0');
+        }
+        return number.append(digits).toString();
+    }
+    
+    private synchronized void leaseBlock(String sequenceName, Block exhausted) {
+        // Another thread may already have replaced the block we found exhausted
+        if (blocks.get(sequenceName) != exhausted) {
+            return;
+        }
+        
+        SequenceCounter counter = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(sequenceName)),
+                new Update().inc("value", blockSize),
+                FindAndModifyOptions.options().returnNew(true).upsert(true),
+                SequenceCounter.class);
+        
+        long last = counter.getValue();
+        blocks.put(sequenceName, new Block(new AtomicLong(last - blockSize + 1), last));
+        log.debug("Leased {} numbers for sequence {} ending at {}", blockSize, sequenceName, last);
+    }
+    
+    private record Block(AtomicLong next, long last) {
+    }
+}
@@ -0,0 +1,77 @@
+package com.emart.service;
+
+import com.emart.model.Payment;
+import com.emart.util.BoundedCache;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for a real payment provider. Responses are delayed on a
+ * scheduler rather than by sleeping, so simulated latency never holds a
+ * request thread.
+ */
+@Component
+@ConditionalOnProperty(name = "app.payment-gateway.provider", havingValue = "simulator", matchIfMissing = true)
+@Slf4j
+public class SimulatedPaymentGateway implements PaymentGateway {
+
+    @Value("${app.payment-gateway.simulator.mean-latency-ms:1000}")
+    private long meanLatencyMs;
+
+    @Value("${app.payment-gateway.simulator.latency-stddev-ms:250}")
+    private long latencyStddevMs;
+
+    @Value("${app.payment-gateway.simulator.failure-rate:0.1}")
+    private double failureRate;
+
+    // Outcomes by transaction id, standing in for the provider's own records
+    private final BoundedCache<String, CompletableFuture<ChargeResult>> charges = new BoundedCache<>(100_000);
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "payment-gateway-simulator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Override
+    public CompletableFuture<ChargeResult> charge(Payment payment) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long latency = Math.max(0, Math.round(meanLatencyMs + random.nextGaussian() * latencyStddevMs));
+        boolean success = random.nextDouble() >= failureRate;
+
+        ChargeResult result = new ChargeResult(
+                success,
+                "GTW-" + UUID.randomUUID().toString().replace("-", "").substring(0, 12).toUpperCase(),
+                success ? "Approved" : "Payment gateway processing failed");
+
+        CompletableFuture<ChargeResult> future = new CompletableFuture<>();
+        charges.put(payment.getTransactionId(), future);
+        scheduler.schedule(() -> future.complete(result), latency, TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<ChargeResult> lookup(Payment payment) {
+        CompletableFuture<ChargeResult> charge = charges.get(payment.getTransactionId());
+        if (charge == null) {
+            return CompletableFuture.completedFuture(
+                    new ChargeResult(false, null, "No charge found for " + payment.getTransactionId()));
+        }
+        return charge;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -2,8 +2,13 @@ package com.emart.service;
 
 import com.emart.model.User;
 import com.emart.repository.UserRepository;
+import com.emart.util.BoundedCache;
+import com.emart.util.CursorPage;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -11,7 +16,10 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -21,11 +29,50 @@ public class UserService implements UserDetailsService {
     
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final CursorPager cursorPager;
+    private final ProductService productService;
+    
+    @Value("${app.security.user-cache.max-entries:10000}")
+    private int userCacheMaxEntries;
+    
+    @Value("${app.security.user-cache.ttl-ms:300000}")
+    private long userCacheTtlMs;
+    
+    private BoundedCache<String, UserPrincipal> userCache;
+    
+    @PostConstruct
+    void initUserCache() {
+        userCache = new BoundedCache<>(userCacheMaxEntries);
+    }
     
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository.findByUsername(username)
+        // Every authenticated request lands here, so principals are cached for a short TTL.
+        // Concurrent requests share the cached principal, so it is an immutable copy, never the document
+        UserPrincipal cached = userCache.get(username);
+        if (cached != null) {
+            return cached;
+        }
+        
+        User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+        UserPrincipal principal = UserPrincipal.of(user);
+        userCache.put(username, principal, System.currentTimeMillis() + userCacheTtlMs);
+        return principal;
+    }
+    
+    public Map<String, Object> getUserCacheStats() {
+        long hits = userCache.getHits();
+        long misses = userCache.getMisses();
+        
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        stats.put("size", userCache.size());
+        stats.put("maxEntries", userCacheMaxEntries);
+        stats.put("ttlMs", userCacheTtlMs);
+        return stats;
     }
     
     public User createUser(User user) {
@@ -55,7 +102,14 @@ public class UserService implements UserDetailsService {
         user.setAddress(userDetails.getAddress());
         user.setUpdatedAt(LocalDateTime.now());
         
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        userCache.invalidate(savedUser.getUsername());
+        
+        // Products carry a copy of their supplier's name and email
+        if (savedUser.getRole() == User.UserRole.SUPPLIER) {
+            productService.refreshSupplierSnapshot(savedUser);
+        }
+        return savedUser;
     }
     
     public void deleteUser(String id) {
@@ -65,6 +119,7 @@ public class UserService implements UserDetailsService {
         user.setEnabled(false);
         user.setUpdatedAt(LocalDateTime.now());
         userRepository.save(user);
+        userCache.invalidate(user.getUsername());
     }
     
     public User getUserById(String id) {
@@ -86,6 +141,10 @@ public class UserService implements UserDetailsService {
         return userRepository.findAll();
     }
     
+    public CursorPage<User> getUsersPage(String cursor, Integer limit) {
+        return cursorPager.page(User.class, User::getId, cursor, limit);
+    }
+    
     public List<User> getUsersByRole(User.UserRole role) {
         return userRepository.findByRole(role);
     }
@@ -104,6 +163,7 @@ public class UserService implements UserDetailsService {
         user.setPassword(passwordEncoder.encode(newPassword));
         user.setUpdatedAt(LocalDateTime.now());
         userRepository.save(user);
+        userCache.invalidate(user.getUsername());
         
         return true;
     }
@@ -113,6 +173,7 @@ public class UserService implements UserDetailsService {
         user.setEnabled(true);
         user.setUpdatedAt(LocalDateTime.now());
         userRepository.save(user);
+        userCache.invalidate(user.getUsername());
     }
     
     public void disableUser(String id) {
@@ -120,6 +181,7 @@ public class UserService implements UserDetailsService {
         user.setEnabled(false);
         user.setUpdatedAt(LocalDateTime.now());
         userRepository.save(user);
+        userCache.invalidate(user.getUsername());
     }
     
     public boolean validateCredentials(String username, String password) {
@@ -130,4 +192,55 @@ public class UserService implements UserDetailsService {
         }
         return false;
     }
-} 
\ No newline at end of file
+    
+    /**
+     * The parts of a user that authentication and authorization read. Unlike
+     * Spring's own User it has no eraseCredentials, so the login path cannot
+     * blank the password hash of the cached instance.
+     */
+    record UserPrincipal(String username, String password, List<GrantedAuthority> authorities, boolean enabled,
+                         boolean accountNonExpired, boolean accountNonLocked, boolean credentialsNonExpired)
+            implements UserDetails {
+        
+        static UserPrincipal of(User user) {
+            return new UserPrincipal(user.getUsername(), user.getPassword(), List.copyOf(user.getAuthorities()),
+                    user.isEnabled(), user.isAccountNonExpired(), user.isAccountNonLocked(),
+                    user.isCredentialsNonExpired());
+        }
+        
+        @Override
+        public String getUsername() {
+            return username;
+        }
+        
+        @Override
+        public String getPassword() {
+            return password;
+        }
+        
+        @Override
+        public Collection<? extends GrantedAuthority> getAuthorities() {
+            return authorities;
+        }
+        
+        @Override
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        @Override
+        public boolean isAccountNonExpired() {
+            return accountNonExpired;
+        }
+        
+        @Override
+        public boolean isAccountNonLocked() {
+            return accountNonLocked;
+        }
+        
+        @Override
+        public boolean isCredentialsNonExpired() {
+            return credentialsNonExpired;
+        }
+    }
+}
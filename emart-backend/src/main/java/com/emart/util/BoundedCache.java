@@ -0,0 +1,127 @@
+package com.emart.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Small thread-safe LRU cache with an entry limit and optional per-entry
+ * expiry. A weigher and weight limit can bound it by size as well, e.g. the
+ * total bytes of cached arrays. Hit and miss counts are kept so callers can
+ * expose them.
+ */
+public class BoundedCache<K, V> {
+
+    private static final long NO_EXPIRY = Long.MAX_VALUE;
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final Map<K, Entry<V>> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    // Guarded by entries
+    private long weight;
+
+    public BoundedCache(int maxEntries) {
+        this(maxEntries, Long.MAX_VALUE, value -> 0);
+    }
+
+    public BoundedCache(int maxEntries, long maxWeight, ToLongFunction<V> weigher) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public V get(K key) {
+        Entry<V> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAtMillis() <= System.currentTimeMillis()) {
+                remove(key);
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value();
+    }
+
+    public void put(K key, V value) {
+        put(key, value, NO_EXPIRY);
+    }
+
+    public void put(K key, V value, long expiresAtMillis) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        long valueWeight = weigher.applyAsLong(value);
+        synchronized (entries) {
+            remove(key);
+            // A value heavier than the whole cache would only evict everything else
+            if (valueWeight > maxWeight) {
+                return;
+            }
+
+            entries.put(key, new Entry<>(value, expiresAtMillis, valueWeight));
+            weight += valueWeight;
+
+            Iterator<Entry<V>> eldest = entries.values().iterator();
+            while (entries.size() > maxEntries || weight > maxWeight) {
+                weight -= eldest.next().weight();
+                eldest.remove();
+            }
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            remove(key);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            weight = 0;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long weight() {
+        synchronized (entries) {
+            return weight;
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private void remove(K key) {
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) {
+            weight -= removed.weight();
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAtMillis, long weight) {
+    }
+}
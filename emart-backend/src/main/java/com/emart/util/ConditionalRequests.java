@@ -0,0 +1,39 @@
+package com.emart.util;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * Conditional GET support for responses identified by an ETag.
+ */
+public final class ConditionalRequests {
+
+    private ConditionalRequests() {
+    }
+
+    /**
+     * Returns true when the request's If-None-Match already covers the
+     * current representation, after writing the 304 status and ETag header;
+     * the handler should then return without a body. ETag lists and weak
+     * validators are handled by {@link ServletWebRequest#checkNotModified};
+     * "*" is matched here as well, since Spring only honours it for unsafe
+     * methods while RFC 9110 (13.1.2) also answers a GET with 304.
+     */
+    public static boolean checkNotModified(ServletWebRequest webRequest, String eTag) {
+        if (webRequest.checkNotModified(eTag)) {
+            return true;
+        }
+
+        if ("*".equals(webRequest.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            HttpServletResponse response = webRequest.getResponse();
+            if (response != null) {
+                response.setStatus(HttpStatus.NOT_MODIFIED.value());
+                response.setHeader(HttpHeaders.ETAG, eTag);
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,29 @@
+package com.emart.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing. The cursor is an opaque token for
+ * the last document returned; pass it back to continue after that document.
+ * nextCursor is null on the last page.
+ */
+public record CursorPage<T>(List<T> items, String nextCursor, int limit) {
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    public static String encodeCursor(String lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.emart.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hierarchical timing wheel for many keyed deadlines. Level 0 has
+ * {@code wheelSize} buckets of one tick each; every higher level has the same
+ * number of buckets, each spanning a whole turn of the level below, and
+ * levels are added on demand for far-off deadlines. Scheduling and
+ * cancelling are O(1); advancing the clock touches only the buckets whose
+ * time has come, cascading higher-level buckets down as they are reached.
+ * Deadlines are resolved to the tick, and every key fires at most once.
+ */
+public class HierarchicalTimingWheel<K> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+
+    private final List<List<Set<K>>> levels = new ArrayList<>();
+    private final Map<K, Long> deadlineTicks = new HashMap<>();
+    private final Map<K, Set<K>> buckets = new HashMap<>();
+
+    // Keys scheduled at or before the current tick, returned by the next advance
+    private final Set<K> due = new LinkedHashSet<>();
+
+    private long currentTick;
+
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("tickMillis must be positive and wheelSize at least 2");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.currentTick = startMillis / tickMillis;
+        addLevel();
+    }
+
+    /**
+     * Schedules the key to fire at the given time, replacing any deadline it
+     * already had.
+     */
+    public synchronized void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        long deadlineTick = Math.floorDiv(deadlineMillis, tickMillis);
+        deadlineTicks.put(key, deadlineTick);
+        place(key, deadlineTick);
+    }
+
+    /**
+     * Schedules the key only if it has no pending deadline. Returns whether
+     * it was scheduled.
+     */
+    public synchronized boolean scheduleIfAbsent(K key, long deadlineMillis) {
+        if (deadlineTicks.containsKey(key)) {
+            return false;
+        }
+        schedule(key, deadlineMillis);
+        return true;
+    }
+
+    public synchronized boolean cancel(K key) {
+        if (deadlineTicks.remove(key) == null) {
+            return false;
+        }
+        Set<K> bucket = buckets.remove(key);
+        if (bucket != null) {
+            bucket.remove(key);
+        } else {
+            due.remove(key);
+        }
+        return true;
+    }
+
+    /**
+     * Moves the clock forward to {@code nowMillis} and returns every key whose
+     * deadline has been reached, in deadline order.
+     */
+    public synchronized List<K> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        List<K> expired = new ArrayList<>(due);
+        due.clear();
+
+        while (currentTick < targetTick) {
+            currentTick++;
+
+            // Higher levels first, so cascaded keys land in the level 0 bucket fired below
+            for (int level = levels.size() - 1; level > 0; level--) {
+                long span = span(level);
+                if (currentTick % span == 0) {
+                    Set<K> bucket = levels.get(level).get(index(currentTick / span));
+                    if (!bucket.isEmpty()) {
+                        List<K> cascaded = new ArrayList<>(bucket);
+                        bucket.clear();
+                        for (K key : cascaded) {
+                            buckets.remove(key);
+                            place(key, deadlineTicks.get(key));
+                        }
+                    }
+                }
+            }
+
+            Set<K> bucket = levels.get(0).get(index(currentTick));
+            for (K key : bucket) {
+                buckets.remove(key);
+                expired.add(key);
+            }
+            bucket.clear();
+            expired.addAll(due);
+            due.clear();
+        }
+
+        expired.forEach(deadlineTicks::remove);
+        return expired;
+    }
+
+    public synchronized int size() {
+        return deadlineTicks.size();
+    }
+
+    public synchronized int levelCount() {
+        return levels.size();
+    }
+
+    private void place(K key, long deadlineTick) {
+        long delta = deadlineTick - currentTick;
+        if (delta <= 0) {
+            due.add(key);
+            return;
+        }
+
+        int level = 0;
+        while (delta >= span(level + 1)) {
+            level++;
+            if (level == levels.size()) {
+                addLevel();
+            }
+        }
+
+        Set<K> bucket = levels.get(level).get(index(deadlineTick / span(level)));
+        bucket.add(key);
+        buckets.put(key, bucket);
+    }
+
+    // Ticks covered by one bucket of the given level
+    private long span(int level) {
+        long span = 1;
+        for (int i = 0; i < level; i++) {
+            span = Math.multiplyExact(span, wheelSize);
+        }
+        return span;
+    }
+
+    private int index(long slot) {
+        return (int) Math.floorMod(slot, (long) wheelSize);
+    }
+
+    private void addLevel() {
+        List<Set<K>> level = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            level.add(new LinkedHashSet<>());
+        }
+        levels.add(level);
+    }
+}
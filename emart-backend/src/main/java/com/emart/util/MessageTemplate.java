@@ -0,0 +1,170 @@
+package com.emart.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A text template with {@code {{name}}} placeholders, parsed once into
+ * literal and variable parts. Rendering appends the parts into a per-thread
+ * buffer that is reused between calls, so no pattern is re-scanned per
+ * message. HTML templates escape the values they substitute, except in
+ * triple-brace {@code {{{name}}}} placeholders, which take markup that was
+ * already rendered (e.g. a list of table rows).
+ */
+public final class MessageTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+    private static final String RAW_OPEN = "{{{";
+    private static final String RAW_CLOSE = "}}}";
+
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    // Each part is either a literal String or a Variable
+    private final Object[] parts;
+    private final boolean html;
+
+    private MessageTemplate(List<Object> parts, boolean html) {
+        this.parts = merge(parts).toArray();
+        this.html = html;
+    }
+
+    public static MessageTemplate text(String source) {
+        return new MessageTemplate(parse(source), false);
+    }
+
+    public static MessageTemplate html(String source) {
+        return new MessageTemplate(parse(source), true);
+    }
+
+    public Set<String> variables() {
+        Set<String> variables = new LinkedHashSet<>();
+        for (Object part : parts) {
+            if (part instanceof Variable variable) {
+                variables.add(variable.name());
+            }
+        }
+        return variables;
+    }
+
+    /**
+     * Returns a template with the given placeholder replaced by the parts of
+     * another template, e.g. a message body dropped into a shared layout.
+     */
+    public MessageTemplate inline(String name, MessageTemplate content) {
+        List<Object> inlined = new ArrayList<>();
+        for (Object part : parts) {
+            if (part instanceof Variable variable && variable.name().equals(name)) {
+                inlined.addAll(List.of(content.parts));
+            } else {
+                inlined.add(part);
+            }
+        }
+        return new MessageTemplate(inlined, html);
+    }
+
+    /**
+     * Returns a template with the given placeholder fixed to a literal value,
+     * inserted as-is.
+     */
+    public MessageTemplate inline(String name, String literal) {
+        return inline(name, new MessageTemplate(List.of(literal), html));
+    }
+
+    public String render(Map<String, ?> values) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        renderTo(buffer, values);
+        String rendered = buffer.toString();
+
+        // Don't pin an unusually large buffer to the thread
+        if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+            BUFFER.remove();
+        }
+        return rendered;
+    }
+
+    public void renderTo(StringBuilder out, Map<String, ?> values) {
+        for (Object part : parts) {
+            if (part instanceof Variable variable) {
+                String value = String.valueOf(values.get(variable.name()));
+                if (html && !variable.raw()) {
+                    escapeHtml(value, out);
+                } else {
+                    out.append(value);
+                }
+            } else {
+                out.append((String) part);
+            }
+        }
+    }
+
+    private static List<Object> parse(String source) {
+        List<Object> parts = new ArrayList<>();
+        int position = 0;
+        while (position < source.length()) {
+            int open = source.indexOf(OPEN, position);
+            if (open < 0) {
+                break;
+            }
+            boolean raw = source.startsWith(RAW_OPEN, open);
+            String openToken = raw ? RAW_OPEN : OPEN;
+            String closeToken = raw ? RAW_CLOSE : CLOSE;
+
+            int close = source.indexOf(closeToken, open + openToken.length());
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at offset " + open);
+            }
+
+            String name = source.substring(open + openToken.length(), close).trim();
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("Empty placeholder at offset " + open);
+            }
+
+            parts.add(source.substring(position, open));
+            parts.add(new Variable(name, raw));
+            position = close + closeToken.length();
+        }
+        parts.add(source.substring(position));
+        return parts;
+    }
+
+    private static List<Object> merge(List<Object> parts) {
+        List<Object> merged = new ArrayList<>(parts.size());
+        for (Object part : parts) {
+            if (part instanceof String literal) {
+                if (literal.isEmpty()) {
+                    continue;
+                }
+                int last = merged.size() - 1;
+                if (last >= 0 && merged.get(last) instanceof String previous) {
+                    merged.set(last, previous + literal);
+                    continue;
+                }
+            }
+            merged.add(part);
+        }
+        return merged;
+    }
+
+    private static void escapeHtml(String value, StringBuilder out) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&' -> out.append("&amp;");
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+
+    private record Variable(String name, boolean raw) {
+    }
+}
@@ -0,0 +1,51 @@
+package com.emart.util;
+
+/**
+ * Token bucket rate limiter: holds at most {@code capacity} tokens and refills
+ * continuously at {@code refillPerSecond}. Callers take as many tokens as are
+ * available up to what they need and hand back any they did not use.
+ */
+public class TokenBucket {
+
+    private final long capacity;
+    private final double refillPerNano;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(long capacity, double refillPerSecond) {
+        if (capacity <= 0 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("capacity and refill rate must be positive");
+        }
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Takes up to {@code max} whole tokens without blocking and returns how
+     * many were granted (possibly zero).
+     */
+    public synchronized int tryAcquireUpTo(int max) {
+        refill();
+        int granted = (int) Math.min(max, Math.floor(tokens));
+        tokens -= granted;
+        return granted;
+    }
+
+    public synchronized void refund(int unused) {
+        tokens = Math.min(capacity, tokens + unused);
+    }
+
+    public synchronized double available() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * refillPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,61 @@
+package com.emart;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records the Mongo commands the driver sends, with the collection and the
+ * thread that issued them, so tests can count round trips made by one call
+ * without picking up background jobs. Commands that read by filter are kept
+ * in full so their plans can be explained.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class MongoCommandCounter implements CommandListener {
+
+    private static final Set<String> QUERY_COMMANDS = Set.of(
+            "find", "aggregate", "count", "distinct", "findAndModify", "update", "delete");
+
+    private final List<Command> commands = new CopyOnWriteArrayList<>();
+
+    @Bean
+    MongoClientSettingsBuilderCustomizer mongoCommandCounterCustomizer() {
+        return settings -> settings.addCommandListener(this);
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        BsonValue target = event.getCommand().get(event.getCommandName());
+        String collection = target != null && target.isString() ? target.asString().getValue() : null;
+        // The event's document is only valid during the callback
+        BsonDocument command = QUERY_COMMANDS.contains(event.getCommandName()) ? event.getCommand().clone() : null;
+        commands.add(new Command(event.getCommandName(), collection, Thread.currentThread().getId(), command));
+    }
+
+    public void reset() {
+        commands.clear();
+    }
+
+    /**
+     * Commands sent by the calling thread since the last reset, optionally
+     * limited to one collection.
+     */
+    public List<Command> commandsFromCurrentThread(String collection) {
+        long threadId = Thread.currentThread().getId();
+        return commands.stream()
+                .filter(command -> command.threadId() == threadId)
+                .filter(command -> collection == null || collection.equals(command.collection()))
+                .toList();
+    }
+
+    public record Command(String name, String collection, long threadId, BsonDocument command) {
+    }
+}
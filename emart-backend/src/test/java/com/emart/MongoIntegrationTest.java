@@ -0,0 +1,21 @@
+package com.emart;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Base class for tests that need a real MongoDB. The container is started
+ * with the (cached) application context and shared by every subclass; the
+ * tests are skipped on machines without Docker.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+@Import(MongoCommandCounter.class)
+public abstract class MongoIntegrationTest {
+
+    @ServiceConnection
+    protected static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+}
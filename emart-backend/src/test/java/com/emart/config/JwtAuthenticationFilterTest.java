@@ -0,0 +1,106 @@
+package com.emart.config;
+
+import com.emart.service.JwtService;
+import com.emart.service.UserService;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthenticationFilterTest {
+
+    @Mock
+    private JwtService jwtService;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private Claims claims;
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void claimsOnlyModeAuthorizesFromTheRoleClaim() throws Exception {
+        stubToken("ADMIN");
+
+        Authentication authentication = authenticate(true);
+
+        verify(userService, never()).loadUserByUsername(anyString());
+        assertThat(authentication.getName()).isEqualTo("alice");
+        assertThat(authentication.getAuthorities())
+                .extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_ADMIN");
+    }
+
+    @Test
+    void claimsOnlyModeLoadsTheUserWhenTheTokenHasNoRole() throws Exception {
+        stubToken(null);
+        stubLoadedUser();
+
+        Authentication authentication = authenticate(true);
+
+        verify(userService).loadUserByUsername("alice");
+        assertThat(authentication.getAuthorities())
+                .extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_CUSTOMER");
+    }
+
+    @Test
+    void defaultModeLoadsTheUser() throws Exception {
+        stubToken("ADMIN");
+        stubLoadedUser();
+
+        Authentication authentication = authenticate(false);
+
+        // The stored role wins over the token's claim
+        verify(userService).loadUserByUsername("alice");
+        assertThat(authentication.getAuthorities())
+                .extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_CUSTOMER");
+    }
+
+    private void stubToken(String role) {
+        when(jwtService.extractAllClaims("token")).thenReturn(claims);
+        when(claims.getSubject()).thenReturn("alice");
+        when(claims.get("role", String.class)).thenReturn(role);
+        when(jwtService.validateClaims(any(Claims.class), any(UserDetails.class))).thenReturn(true);
+    }
+
+    private void stubLoadedUser() {
+        when(userService.loadUserByUsername("alice"))
+                .thenReturn(User.withUsername("alice").password("hash").roles("CUSTOMER").build());
+    }
+
+    private Authentication authenticate(boolean claimsOnly) throws Exception {
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, userService);
+        ReflectionTestUtils.setField(filter, "claimsOnlyAuthorization", claimsOnly);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products");
+        request.addHeader("Authorization", "Bearer token");
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(authentication).isNotNull();
+        return authentication;
+    }
+}
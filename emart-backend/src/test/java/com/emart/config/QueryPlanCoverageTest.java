@@ -0,0 +1,237 @@
+package com.emart.config;
+
+import com.emart.MongoCommandCounter;
+import com.emart.MongoIntegrationTest;
+import com.emart.model.Invoice;
+import com.emart.model.Order;
+import com.emart.model.Payment;
+import com.emart.model.User;
+import com.emart.repository.InvoiceRepository;
+import com.emart.repository.PaymentRepository;
+import com.emart.repository.ProductRepository;
+import com.emart.repository.UserRepository;
+import com.emart.service.EmailDispatcher;
+import com.emart.service.InventoryAlertService;
+import com.emart.service.InvoiceService;
+import com.emart.service.OrderPostProcessingService;
+import com.emart.service.OrderService;
+import com.emart.service.PaymentService;
+import com.emart.service.ProductService;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the repository and service reads that sit on hot paths, captures the
+ * commands they actually send, and explains each one. Any winning plan with
+ * a COLLSCAN stage fails the test, naming the call and the filter it used.
+ */
+class QueryPlanCoverageTest extends MongoIntegrationTest {
+
+    // Session fields the driver adds; explain rejects some of them
+    private static final List<String> SESSION_FIELDS = List.of("lsid", "txnNumber", "readConcern", "writeConcern");
+
+    @Autowired
+    private MongoCommandCounter mongoCommandCounter;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private InventoryAlertService inventoryAlertService;
+
+    @Autowired
+    private OrderPostProcessingService orderPostProcessingService;
+
+    @Autowired
+    private EmailDispatcher emailDispatcher;
+
+    @Test
+    void hotQueriesAreServedByIndexes() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime weekAgo = now.minusDays(7);
+
+        Map<String, Runnable> calls = new LinkedHashMap<>();
+        calls.put("OrderService.getOrdersByCustomer", () -> orderService.getOrdersByCustomer("customer-1"));
+        calls.put("OrderService.getCustomerOrdersByDateRange",
+                () -> orderService.getCustomerOrdersByDateRange("customer-1", weekAgo, now));
+        calls.put("OrderService.getOrdersByStatus", () -> orderService.getOrdersByStatus(Order.OrderStatus.PENDING));
+        calls.put("OrderService.getOrdersByPaymentStatus",
+                () -> orderService.getOrdersByPaymentStatus(Order.PaymentStatus.PENDING));
+        calls.put("OrderService.getOrdersByDateRange", () -> orderService.getOrdersByDateRange(weekAgo, now));
+        calls.put("OrderService.getPendingOrders", () -> orderService.getPendingOrders());
+        calls.put("PaymentService.getPaymentsByDateRange", () -> paymentService.getPaymentsByDateRange(weekAgo, now));
+        calls.put("PaymentService.getPaymentsByStatus",
+                () -> paymentService.getPaymentsByStatus(Payment.PaymentStatus.COMPLETED));
+        calls.put("PaymentService.getPaymentsByMethod",
+                () -> paymentService.getPaymentsByMethod(Payment.PaymentMethod.CREDIT_CARD));
+        calls.put("PaymentService.getPaymentsByOrder", () -> paymentService.getPaymentsByOrder("order-1"));
+        calls.put("PaymentRepository.findByCustomerIdAndStatus",
+                () -> paymentRepository.findByCustomerIdAndStatus("customer-1", Payment.PaymentStatus.COMPLETED));
+        calls.put("PaymentService.reconcileStalePayments", () -> paymentService.reconcileStalePayments());
+        calls.put("InvoiceService.getOverdueInvoices", () -> invoiceService.getOverdueInvoices());
+        calls.put("InvoiceService.getInvoicesByStatus",
+                () -> invoiceService.getInvoicesByStatus(Invoice.InvoiceStatus.SENT));
+        calls.put("InvoiceService.getInvoicesByCustomer", () -> invoiceService.getInvoicesByCustomer("customer-1"));
+        calls.put("InvoiceRepository.findByOrderId", () -> invoiceRepository.findByOrderId("order-1"));
+        calls.put("InvoiceRepository.findByCreatedAtBetween",
+                () -> invoiceRepository.findByCreatedAtBetween(weekAgo, now));
+        calls.put("ProductService.getExpiredProducts", () -> productService.getExpiredProducts());
+        calls.put("ProductService.getProductsExpiringBetween",
+                () -> productService.getProductsExpiringBetween(LocalDate.now(), LocalDate.now().plusDays(7)));
+        calls.put("ProductService.getAvailableProducts", () -> productService.getAvailableProducts());
+        calls.put("ProductService.getPendingProducts", () -> productService.getPendingProducts());
+        calls.put("ProductService.getLowStockProducts", () -> productService.getLowStockProducts(10));
+        calls.put("ProductService.getProductsBySupplier", () -> productService.getProductsBySupplier("supplier-1"));
+        calls.put("ProductService.releaseAbandonedReservations", () -> productService.releaseAbandonedReservations());
+        calls.put("ProductRepository.findByBarcode", () -> productRepository.findByBarcode("EM0000000000"));
+        calls.put("UserRepository.findEnabledByRole", () -> userRepository.findEnabledByRole(User.UserRole.ADMIN));
+        calls.put("InventoryAlertService.run", () -> inventoryAlertService.run());
+        calls.put("OrderPostProcessingService.pollOutbox", () -> orderPostProcessingService.pollOutbox());
+        calls.put("EmailDispatcher.dispatch", () -> emailDispatcher.dispatch());
+
+        List<String> collectionScans = new ArrayList<>();
+        for (Map.Entry<String, Runnable> call : calls.entrySet()) {
+            mongoCommandCounter.reset();
+            call.getValue().run();
+
+            List<BsonDocument> queries = mongoCommandCounter.commandsFromCurrentThread(null).stream()
+                    .map(MongoCommandCounter.Command::command)
+                    .filter(Objects::nonNull)
+                    .flatMap(command -> singleStatements(command).stream())
+                    .toList();
+            assertThat(queries).as("queries sent by %s", call.getKey()).isNotEmpty();
+
+            for (BsonDocument query : queries) {
+                if (hasEmptyFilter(query)) {
+                    continue;
+                }
+                Document explain = mongoTemplate.getDb().runCommand(
+                        new Document("explain", query).append("verbosity", "queryPlanner"));
+                if (winningPlansContain(explain, "COLLSCAN")) {
+                    collectionScans.add(call.getKey() + ": " + query.toJson());
+                }
+            }
+        }
+
+        assertThat(collectionScans).as("queries planned as a collection scan").isEmpty();
+    }
+
+    @Test
+    void invoiceOrderIdIndexIsUnique() {
+        // One invoice per order is enforced by this index, not by a read-then-insert
+        IndexInfo orderId = mongoTemplate.indexOps(Invoice.class).getIndexInfo().stream()
+                .filter(index -> "order_id".equals(index.getName()))
+                .findFirst()
+                .orElseThrow();
+        assertThat(orderId.isUnique()).isTrue();
+    }
+
+    /**
+     * The command without driver-added fields, split so that update and
+     * delete commands carry one statement each, as explain requires.
+     */
+    private List<BsonDocument> singleStatements(BsonDocument command) {
+        BsonDocument base = new BsonDocument();
+        command.forEach((key, value) -> {
+            if (!key.startsWith("$") && !SESSION_FIELDS.contains(key)) {
+                base.append(key, value);
+            }
+        });
+
+        String statementsField = base.containsKey("updates") ? "updates" : base.containsKey("deletes") ? "deletes" : null;
+        if (statementsField == null) {
+            return List.of(base);
+        }
+        List<BsonDocument> statements = new ArrayList<>();
+        for (BsonValue statement : base.getArray(statementsField)) {
+            statements.add(base.clone().append(statementsField, new BsonArray(List.of(statement))));
+        }
+        return statements;
+    }
+
+    private boolean hasEmptyFilter(BsonDocument command) {
+        BsonValue filter;
+        if (command.containsKey("filter")) {
+            filter = command.get("filter");
+        } else if (command.containsKey("query")) {
+            filter = command.get("query");
+        } else if (command.containsKey("updates")) {
+            filter = command.getArray("updates").get(0).asDocument().get("q");
+        } else if (command.containsKey("deletes")) {
+            filter = command.getArray("deletes").get(0).asDocument().get("q");
+        } else if (command.containsKey("pipeline") && !command.getArray("pipeline").isEmpty()) {
+            filter = command.getArray("pipeline").get(0).asDocument().get("$match");
+        } else {
+            filter = null;
+        }
+        return filter == null || filter.isDocument() && filter.asDocument().isEmpty();
+    }
+
+    private boolean winningPlansContain(Object node, String stage) {
+        if (node instanceof Document document) {
+            for (Map.Entry<String, Object> entry : document.entrySet()) {
+                if ("winningPlan".equals(entry.getKey()) && containsStage(entry.getValue(), stage)) {
+                    return true;
+                }
+                if (winningPlansContain(entry.getValue(), stage)) {
+                    return true;
+                }
+            }
+        } else if (node instanceof List<?> list) {
+            return list.stream().anyMatch(item -> winningPlansContain(item, stage));
+        }
+        return false;
+    }
+
+    // Walks classic (inputStage / inputStages) and slot-based (queryPlan) plan shapes alike
+    private boolean containsStage(Object node, String stage) {
+        if (node instanceof Document document) {
+            return stage.equals(document.get("stage"))
+                    || document.values().stream().anyMatch(value -> containsStage(value, stage));
+        }
+        if (node instanceof List<?> list) {
+            return list.stream().anyMatch(item -> containsStage(item, stage));
+        }
+        return false;
+    }
+}
@@ -0,0 +1,56 @@
+package com.emart.controller;
+
+import com.emart.service.BarcodeService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class BarcodeControllerTest {
+
+    private static final String BARCODE = "EM1234567890";
+
+    private final BarcodeService barcodeService = mock(BarcodeService.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        when(barcodeService.validateBarcode(BARCODE)).thenReturn(true);
+        mockMvc = MockMvcBuilders.standaloneSetup(new BarcodeController(barcodeService, new ObjectMapper())).build();
+    }
+
+    @Test
+    void unknownFormatIsRejected() throws Exception {
+        mockMvc.perform(get("/api/barcodes/image/" + BARCODE).param("format", "gif"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unsupported image format: gif"));
+    }
+
+    @Test
+    void formatIsCaseInsensitive() throws Exception {
+        when(barcodeService.renderBarcodeImage(eq(BARCODE), eq(BarcodeService.ImageFormat.SVG), any(), any()))
+                .thenReturn("<svg/>".getBytes());
+
+        mockMvc.perform(get("/api/barcodes/image/" + BARCODE).param("format", "Svg"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void encodeFailureIsNotReportedAsAFormatError() throws Exception {
+        when(barcodeService.renderBarcodeImage(eq(BARCODE), eq(BarcodeService.ImageFormat.PNG), any(), any()))
+                .thenThrow(new IllegalArgumentException("Contents length should be between 1 and 80 characters"));
+
+        mockMvc.perform(get("/api/barcodes/image/" + BARCODE))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Contents length should be between 1 and 80 characters"));
+    }
+}
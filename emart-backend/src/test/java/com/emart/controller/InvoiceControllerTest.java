@@ -0,0 +1,82 @@
+package com.emart.controller;
+
+import com.emart.service.EmailService;
+import com.emart.service.InvoiceService;
+import com.emart.service.JwtService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class InvoiceControllerTest {
+
+    private static final String HASH = "0123456789abcdef0123456789abcdef";
+    private static final String ETAG = "\"" + HASH + "\"";
+
+    @TempDir
+    Path directory;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path pdf = Files.writeString(directory.resolve("INV-1-" + HASH + ".pdf"), "%PDF-1.7");
+
+        InvoiceService invoiceService = mock(InvoiceService.class);
+        when(invoiceService.getInvoicePdf("invoice-1")).thenReturn(new InvoiceService.InvoicePdf(pdf, HASH));
+
+        mockMvc = MockMvcBuilders.standaloneSetup(
+                new InvoiceController(invoiceService, mock(JwtService.class), mock(EmailService.class))).build();
+    }
+
+    @Test
+    void servesThePdfWithItsETag() throws Exception {
+        mockMvc.perform(get("/api/invoices/invoice-1/pdf"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG));
+    }
+
+    @Test
+    void matchingETagIsNotModified() throws Exception {
+        expectNotModified(ETAG);
+    }
+
+    @Test
+    void weakETagIsNotModified() throws Exception {
+        expectNotModified("W/" + ETAG);
+    }
+
+    @Test
+    void eTagListIsNotModified() throws Exception {
+        expectNotModified("\"stale\", " + ETAG);
+    }
+
+    @Test
+    void wildcardIsNotModified() throws Exception {
+        expectNotModified("*");
+    }
+
+    @Test
+    void otherETagGetsTheBody() throws Exception {
+        mockMvc.perform(get("/api/invoices/invoice-1/pdf").header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+                .andExpect(status().isOk());
+    }
+
+    private void expectNotModified(String ifNoneMatch) throws Exception {
+        mockMvc.perform(get("/api/invoices/invoice-1/pdf").header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG));
+    }
+}
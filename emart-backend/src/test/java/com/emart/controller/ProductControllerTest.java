@@ -0,0 +1,81 @@
+package com.emart.controller;
+
+import com.emart.service.CatalogSnapshot;
+import com.emart.service.EmailService;
+import com.emart.service.JwtService;
+import com.emart.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ProductControllerTest {
+
+    private static final String ETAG = "\"0123456789abcdef0123456789abcdef\"";
+    private static final String BODY = "[{\"id\":\"product-1\"}]";
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        ProductService productService = mock(ProductService.class);
+        when(productService.getCatalogListing(CatalogSnapshot.View.APPROVED)).thenReturn(
+                new CatalogSnapshot.Listing(1, BODY.getBytes(StandardCharsets.UTF_8), ETAG, 1));
+
+        mockMvc = MockMvcBuilders.standaloneSetup(
+                new ProductController(productService, mock(JwtService.class), mock(EmailService.class))).build();
+    }
+
+    @Test
+    void servesTheListingWithItsETag() throws Exception {
+        mockMvc.perform(get("/api/products/approved"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andExpect(content().string(BODY));
+    }
+
+    @Test
+    void matchingETagIsNotModified() throws Exception {
+        expectNotModified(ETAG);
+    }
+
+    @Test
+    void weakETagIsNotModified() throws Exception {
+        expectNotModified("W/" + ETAG);
+    }
+
+    @Test
+    void eTagListIsNotModified() throws Exception {
+        expectNotModified("\"stale\", " + ETAG);
+    }
+
+    @Test
+    void wildcardIsNotModified() throws Exception {
+        expectNotModified("*");
+    }
+
+    @Test
+    void otherETagGetsTheBody() throws Exception {
+        mockMvc.perform(get("/api/products/approved").header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string(BODY));
+    }
+
+    private void expectNotModified(String ifNoneMatch) throws Exception {
+        mockMvc.perform(get("/api/products/approved").header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+    }
+}
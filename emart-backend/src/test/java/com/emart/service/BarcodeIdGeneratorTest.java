@@ -0,0 +1,104 @@
+package com.emart.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BarcodeIdGeneratorTest {
+
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 20_000;
+
+    private final AtomicLong clock = new AtomicLong(BarcodeIdGenerator.EPOCH_MILLIS + 1_000_000);
+    private final BarcodeIdGenerator generator = new BarcodeIdGenerator(42, clock::get);
+
+    @Test
+    void idsFromManyThreadsAreUniqueAndIncreasingPerThread() throws Exception {
+        Set<Long> ids = generateConcurrently(() -> {
+        });
+
+        assertThat(ids).hasSize(THREADS * IDS_PER_THREAD);
+    }
+
+    @Test
+    void idsStayUniqueAndIncreasingWhenTheClockStepsBackwards() throws Exception {
+        AtomicLong calls = new AtomicLong();
+        // Every thread nudges the clock; every thousandth call it jumps back five seconds
+        Set<Long> ids = generateConcurrently(() -> {
+            if (calls.incrementAndGet() % 1_000 == 0) {
+                clock.addAndGet(-5_000);
+            } else {
+                clock.incrementAndGet();
+            }
+        });
+
+        assertThat(ids).hasSize(THREADS * IDS_PER_THREAD);
+    }
+
+    @Test
+    void sequenceOverflowAndClockRegressionBorrowTheNextMillisecond() {
+        List<Long> ids = new ArrayList<>();
+        // More ids than the 12-bit sequence holds within one millisecond
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(generator.nextId());
+        }
+        clock.addAndGet(-60_000);
+        for (int i = 0; i < 1_000; i++) {
+            ids.add(generator.nextId());
+        }
+
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void codesAreFixedWidthAndSortLikeTheirIds() {
+        String first = generator.nextCode();
+        clock.addAndGet(-1_000);
+        String second = generator.nextCode();
+
+        assertThat(first).hasSize(BarcodeIdGenerator.ID_LENGTH).matches("[0-9A-Z]+");
+        assertThat(second).hasSize(BarcodeIdGenerator.ID_LENGTH);
+        assertThat(second).isGreaterThan(first);
+    }
+
+    private Set<Long> generateConcurrently(Runnable beforeEachId) throws Exception {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    long previous = Long.MIN_VALUE;
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        beforeEachId.run();
+                        long id = generator.nextId();
+                        // Ids seen by one thread must always increase, whatever the clock does
+                        assertThat(id).isGreaterThan(previous);
+                        ids.add(id);
+                        previous = id;
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return ids;
+    }
+}
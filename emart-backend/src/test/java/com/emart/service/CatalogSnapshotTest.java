@@ -0,0 +1,76 @@
+package com.emart.service;
+
+import com.emart.model.Product;
+import com.emart.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CatalogSnapshotTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final CatalogSnapshot snapshot = new CatalogSnapshot(productRepository, new ObjectMapper().findAndRegisterModules());
+
+    @Test
+    void changesFollowTheRebuiltCatalog() {
+        when(productRepository.findByStatus(Product.ProductStatus.APPROVED))
+                .thenReturn(List.of(product("p1", Product.ProductStatus.APPROVED, 5)));
+        snapshot.rebuild();
+
+        snapshot.onProductSaved(product("p2", Product.ProductStatus.APPROVED, 0));
+        assertThat(listing(CatalogSnapshot.View.APPROVED)).contains("\"p1\"", "\"p2\"");
+        assertThat(listing(CatalogSnapshot.View.AVAILABLE)).contains("\"p1\"").doesNotContain("\"p2\"");
+
+        snapshot.onProductSaved(product("p1", Product.ProductStatus.REJECTED, 5));
+        assertThat(listing(CatalogSnapshot.View.APPROVED)).doesNotContain("\"p1\"").contains("\"p2\"");
+    }
+
+    @Test
+    void saveDuringRebuildIsNotLost() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(productRepository.findByStatus(Product.ProductStatus.APPROVED)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            // Read before the save below committed
+            return List.of(product("p1", Product.ProductStatus.APPROVED, 5));
+        });
+
+        Thread rebuild = new Thread(snapshot::rebuild);
+        rebuild.start();
+        assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+
+        Thread save = new Thread(() -> snapshot.onProductSaved(product("p2", Product.ProductStatus.APPROVED, 5)));
+        save.start();
+        // The save waits for the rebuild rather than landing in the map it replaces
+        while (save.getState() != Thread.State.BLOCKED && save.isAlive()) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        rebuild.join(10_000);
+        save.join(10_000);
+
+        assertThat(listing(CatalogSnapshot.View.APPROVED)).contains("\"p1\"", "\"p2\"");
+    }
+
+    private String listing(CatalogSnapshot.View view) {
+        return new String(snapshot.getListing(view).body(), StandardCharsets.UTF_8);
+    }
+
+    private static Product product(String id, Product.ProductStatus status, int quantity) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setStatus(status);
+        product.setQuantity(quantity);
+        return product;
+    }
+}
@@ -0,0 +1,113 @@
+package com.emart.service;
+
+import com.emart.MongoIntegrationTest;
+import com.emart.model.Payment;
+import com.emart.util.CursorPage;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Walks a large payments collection page by page and measures what each
+ * request costs the calling thread. Keyset pages must cost the same at the
+ * end of the collection as at the start, and far less than loading the
+ * whole listing.
+ */
+@Slf4j
+class CursorPaginationLoadTest extends MongoIntegrationTest {
+
+    private static final String TRANSACTION_PREFIX = "TXN-PAGING-";
+    private static final int DOCUMENTS = 50_000;
+    private static final int PAGE_SIZE = 100;
+    private static final int SAMPLE_PAGES = 20;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        mongoTemplate.remove(Query.query(Criteria.where("transactionId").regex("^" + TRANSACTION_PREFIX)), Payment.class);
+    }
+
+    @Test
+    void memoryPerPageStaysFlatFromFirstToLastPage() {
+        insertPayments();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        List<Long> allocatedPerPage = new ArrayList<>();
+        List<Long> nanosPerPage = new ArrayList<>();
+        String cursor = null;
+        do {
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            CursorPage<Payment> page = paymentService.getPaymentsPage(cursor, PAGE_SIZE);
+            nanosPerPage.add(System.nanoTime() - start);
+            allocatedPerPage.add(threads.getCurrentThreadAllocatedBytes() - allocatedBefore);
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertThat(allocatedPerPage.size()).isGreaterThanOrEqualTo(DOCUMENTS / PAGE_SIZE);
+
+        // Skip the first pages as warm-up, then compare early pages with the deepest full ones
+        int lastFullPage = allocatedPerPage.size() - 1;
+        long earlyBytes = median(allocatedPerPage.subList(SAMPLE_PAGES, 2 * SAMPLE_PAGES));
+        long deepBytes = median(allocatedPerPage.subList(lastFullPage - SAMPLE_PAGES, lastFullPage));
+        long earlyNanos = median(nanosPerPage.subList(SAMPLE_PAGES, 2 * SAMPLE_PAGES));
+        long deepNanos = median(nanosPerPage.subList(lastFullPage - SAMPLE_PAGES, lastFullPage));
+
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        int everything = paymentService.getAllPayments().size();
+        long wholeListingBytes = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        log.info("{} pages of {}: early page {} KiB / {} ms, deep page {} KiB / {} ms, whole listing of {} {} KiB",
+                allocatedPerPage.size(), PAGE_SIZE, earlyBytes / 1024, earlyNanos / 1_000_000,
+                deepBytes / 1024, deepNanos / 1_000_000, everything, wholeListingBytes / 1024);
+
+        assertThat(deepBytes).as("bytes allocated by a deep page vs an early one")
+                .isLessThan(earlyBytes * 3 / 2);
+        assertThat(wholeListingBytes).as("bytes allocated by the unpaged listing")
+                .isGreaterThan(deepBytes * (DOCUMENTS / PAGE_SIZE) / 2);
+    }
+
+    private void insertPayments() {
+        List<Payment> batch = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            Payment payment = new Payment();
+            payment.setTransactionId(TRANSACTION_PREFIX + i);
+            payment.setOrderId("order-" + i);
+            payment.setCustomerId("customer-" + (i % 500));
+            payment.setCustomerName("Paging Customer");
+            payment.setAmount(new BigDecimal("19.99"));
+            payment.setPaymentMethod(Payment.PaymentMethod.CREDIT_CARD);
+            payment.setStatus(Payment.PaymentStatus.COMPLETED);
+            payment.setPaymentDate(now);
+            batch.add(payment);
+            if (batch.size() == 1_000) {
+                mongoTemplate.insert(batch, Payment.class);
+                batch.clear();
+            }
+        }
+        mongoTemplate.insert(batch, Payment.class);
+    }
+
+    private static long median(List<Long> values) {
+        List<Long> sorted = values.stream().sorted().toList();
+        return sorted.get(sorted.size() / 2);
+    }
+}
@@ -0,0 +1,193 @@
+package com.emart.service;
+
+import com.emart.model.EmailMessage;
+import com.emart.repository.EmailOutboxRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.ServerSocket;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the dispatcher against an in-process SMTP server. The outbox
+ * collection is mocked; the mail goes over real SMTP connections.
+ */
+@ExtendWith(MockitoExtension.class)
+class EmailDispatcherTest {
+
+    @RegisterExtension
+    static final GreenMailExtension GREEN_MAIL = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private static final long RETRY_DELAY_MS = 30_000;
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Mock
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private final JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+    private EmailDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        mailSender.setHost(ServerSetupTest.SMTP.getBindAddress());
+        mailSender.setPort(ServerSetupTest.SMTP.getPort());
+
+        dispatcher = new EmailDispatcher(emailOutboxRepository, mailSender, mongoTemplate);
+        ReflectionTestUtils.setField(dispatcher, "fromEmail", "shop@emart.test");
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 200);
+        ReflectionTestUtils.setField(dispatcher, "messagesPerConnection", 2);
+        ReflectionTestUtils.setField(dispatcher, "rateLimitCapacity", 20L);
+        ReflectionTestUtils.setField(dispatcher, "rateLimitPerSecond", 5.0);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", MAX_ATTEMPTS);
+        ReflectionTestUtils.setField(dispatcher, "retryDelayMs", RETRY_DELAY_MS);
+        ReflectionTestUtils.setField(dispatcher, "maxRetryDelayMs", 3_600_000L);
+        ReflectionTestUtils.setField(dispatcher, "leaseMs", 120_000L);
+        dispatcher.initRateLimiter();
+    }
+
+    @Test
+    void deliversTheClaimedBatchAndMarksItSent() throws Exception {
+        List<EmailMessage> batch = IntStream.range(0, 5).mapToObj(i -> message("m" + i, 0)).toList();
+        batch.get(0).setHtmlBody("<p>Hello</p>");
+        stubClaim(batch);
+
+        dispatcher.dispatch();
+
+        MimeMessage[] received = GREEN_MAIL.getReceivedMessages();
+        assertThat(received).hasSize(5);
+        assertThat(received).extracting(MimeMessage::getSubject)
+                .containsExactlyInAnyOrder("Subject m0", "Subject m1", "Subject m2", "Subject m3", "Subject m4");
+
+        MimeMessage withHtml = List.of(received).stream()
+                .filter(message -> subjectOf(message).equals("Subject m0"))
+                .findFirst()
+                .orElseThrow();
+        assertThat(withHtml.getContent()).isInstanceOf(MimeMultipart.class);
+
+        // The first write is the claim; then each chunk of two is marked sent after its own SMTP session
+        ArgumentCaptor<Query> sentQueries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> sentUpdates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(4))
+                .updateMulti(sentQueries.capture(), sentUpdates.capture(), eq(EmailMessage.class));
+        List<Object> markedSent = new ArrayList<>();
+        for (int i = 1; i < sentUpdates.getAllValues().size(); i++) {
+            assertThat(setOf(sentUpdates.getAllValues().get(i)).get("status")).isEqualTo(EmailMessage.Status.SENT);
+            Document idFilter = (Document) sentQueries.getAllValues().get(i).getQueryObject().get("_id");
+            markedSent.addAll((List<?>) idFilter.get("$in"));
+        }
+        assertThat(markedSent).containsExactlyInAnyOrder("m0", "m1", "m2", "m3", "m4");
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(EmailMessage.class));
+    }
+
+    @Test
+    void unreachableServerSchedulesARetryWithBackoff() throws Exception {
+        mailSender.setPort(unusedPort());
+        stubClaim(List.of(message("m1", 1)));
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatch();
+
+        Document set = setOf(capturedFailureUpdate());
+        assertThat(set.get("status")).isEqualTo(EmailMessage.Status.PENDING);
+        assertThat(set.get("attempts")).isEqualTo(2);
+        // Second attempt waits twice the base delay
+        assertThat((LocalDateTime) set.get("nextAttemptAt"))
+                .isAfterOrEqualTo(before.plusNanos(2 * RETRY_DELAY_MS * 1_000_000));
+        assertThat(GREEN_MAIL.getReceivedMessages()).isEmpty();
+    }
+
+    @Test
+    void lastFailedAttemptDeadLettersTheMessage() throws Exception {
+        mailSender.setPort(unusedPort());
+        stubClaim(List.of(message("m1", MAX_ATTEMPTS - 1)));
+
+        dispatcher.dispatch();
+
+        Document set = setOf(capturedFailureUpdate());
+        assertThat(set.get("status")).isEqualTo(EmailMessage.Status.DEAD);
+        assertThat(set.get("attempts")).isEqualTo(MAX_ATTEMPTS);
+    }
+
+    @Test
+    void claimsNoMoreThanTheRateLimitAllows() {
+        ReflectionTestUtils.setField(dispatcher, "rateLimitCapacity", 3L);
+        dispatcher.initRateLimiter();
+        when(mongoTemplate.find(any(Query.class), eq(EmailMessage.class))).thenReturn(List.of());
+
+        dispatcher.dispatch();
+
+        ArgumentCaptor<Query> due = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(due.capture(), eq(EmailMessage.class));
+        assertThat(due.getValue().getLimit()).isEqualTo(3);
+    }
+
+    private void stubClaim(List<EmailMessage> batch) {
+        // First the due ids, then the documents this run won the lease on
+        List<EmailMessage> ids = batch.stream().map(message -> message(message.getId(), 0)).toList();
+        when(mongoTemplate.find(any(Query.class), eq(EmailMessage.class))).thenReturn(ids).thenReturn(batch);
+    }
+
+    private Update capturedFailureUpdate() {
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(EmailMessage.class));
+        return update.getValue();
+    }
+
+    private static Document setOf(Update update) {
+        return (Document) update.getUpdateObject().get("$set");
+    }
+
+    private static String subjectOf(MimeMessage message) {
+        try {
+            return message.getSubject();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int unusedPort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static EmailMessage message(String id, int attempts) {
+        EmailMessage message = new EmailMessage();
+        message.setId(id);
+        message.setTo(id + "@example.com");
+        message.setSubject("Subject " + id);
+        message.setBody("Body " + id);
+        message.setStatus(EmailMessage.Status.SENDING);
+        message.setAttempts(attempts);
+        return message;
+    }
+}
@@ -0,0 +1,88 @@
+package com.emart.service;
+
+import com.emart.util.MessageTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order confirmation body rendered the way EmailService used to build it,
+ * with String.format over a concatenated pattern, against the compiled
+ * template. Run through EmailRenderingBenchmarkTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailRenderingBenchmark {
+
+    static final String CUSTOMER_NAME = "Ada Lovelace";
+    static final String ORDER_NUMBER = "ORD-20260117-000042";
+    static final String TOTAL = "128.40";
+
+    private MessageTemplate orderConfirmationText;
+    private EmailTemplateService emailTemplateService;
+    private Map<String, Object> values;
+
+    @Setup
+    public void setUp() throws IOException {
+        orderConfirmationText = MessageTemplate.text(load("order-confirmation.txt"));
+        emailTemplateService = new EmailTemplateService(new DefaultResourceLoader());
+        emailTemplateService.compileTemplates();
+        values = Map.of("name", CUSTOMER_NAME, "orderNumber", ORDER_NUMBER, "total", TOTAL);
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        return formatOrderConfirmation(CUSTOMER_NAME, ORDER_NUMBER, TOTAL);
+    }
+
+    @Benchmark
+    public String compiledTemplate() {
+        return orderConfirmationText.render(values);
+    }
+
+    // Subject, text and HTML bodies together, as EmailService now renders each message
+    @Benchmark
+    public EmailTemplateService.RenderedEmail compiledTemplateWithHtml() {
+        return emailTemplateService.render(EmailTemplateService.Template.ORDER_CONFIRMATION, values);
+    }
+
+    // Verbatim from the EmailService this replaced
+    static String formatOrderConfirmation(String customerName, String orderNumber, String total) {
+        return String.format(
+            "Dear %s,\n\n" +
+            "Thank you for your order! Your order has been confirmed.\n\n" +
+            "Order Number: %s\n" +
+            "Total Amount: $%s\n\n" +
+            "We will notify you when your order is ready for pickup.\n\n" +
+            "Best regards,\n" +
+            "EMart Team",
+            customerName, orderNumber, total
+        );
+    }
+
+    private static String load(String name) throws IOException {
+        try (InputStream input = new DefaultResourceLoader()
+                .getResource("classpath:templates/email/" + name).getInputStream()) {
+            return StreamUtils.copyToString(input, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.emart.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+class EmailRenderingBenchmarkTest {
+
+    @Test
+    void templateRendersTheSameTextAsTheOldFormat() throws Exception {
+        EmailTemplateService emailTemplateService = new EmailTemplateService(new DefaultResourceLoader());
+        emailTemplateService.compileTemplates();
+
+        EmailTemplateService.RenderedEmail email = emailTemplateService.render(
+                EmailTemplateService.Template.ORDER_CONFIRMATION,
+                Map.of("name", EmailRenderingBenchmark.CUSTOMER_NAME,
+                        "orderNumber", EmailRenderingBenchmark.ORDER_NUMBER,
+                        "total", EmailRenderingBenchmark.TOTAL));
+
+        assertThat(email.text()).isEqualTo(EmailRenderingBenchmark.formatOrderConfirmation(
+                EmailRenderingBenchmark.CUSTOMER_NAME, EmailRenderingBenchmark.ORDER_NUMBER,
+                EmailRenderingBenchmark.TOTAL));
+    }
+
+    /**
+     * Takes about half a minute, so it only runs when asked for:
+     * {@code mvn test -Dtest=EmailRenderingBenchmarkTest -Dbenchmarks=true}
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void compiledTemplateIsFasterThanStringFormat() throws Exception {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(EmailRenderingBenchmark.class.getName())
+                .build()).run();
+
+        Map<String, Double> nanosPerOp = results.stream().collect(Collectors.toMap(
+                result -> result.getParams().getBenchmark().replaceAll(".*\\.", ""),
+                result -> result.getPrimaryResult().getScore()));
+        log.info("Order confirmation rendering, ns/op: {}", nanosPerOp);
+
+        assertThat(nanosPerOp.get("compiledTemplate")).isLessThan(nanosPerOp.get("stringFormat"));
+    }
+}
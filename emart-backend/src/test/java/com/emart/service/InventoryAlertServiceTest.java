@@ -0,0 +1,60 @@
+package com.emart.service;
+
+import com.emart.model.Product;
+import com.emart.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryAlertServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private EmailService emailService;
+
+    @InjectMocks
+    private InventoryAlertService inventoryAlertService;
+
+    @Test
+    void candidatesAreLimitedToListedProducts() {
+        inventoryAlertService.run();
+
+        ArgumentCaptor<Query> candidates = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(candidates.capture(), eq(Product.class));
+        Document status = (Document) candidates.getValue().getQueryObject().get("status");
+        assertThat(status.getList("$in", Object.class))
+                .containsExactlyInAnyOrder(Product.ProductStatus.APPROVED, Product.ProductStatus.OUT_OF_STOCK);
+    }
+
+    @Test
+    void alertFlagsAreNotPartOfTheProductJson() throws Exception {
+        Product product = new Product();
+        product.setName("Milk");
+        product.setLowStockAlertedAt(LocalDateTime.now());
+        product.setExpiryAlertedAt(LocalDateTime.now());
+
+        String json = new ObjectMapper().registerModule(new JavaTimeModule()).writeValueAsString(product);
+
+        assertThat(json).contains("\"name\":\"Milk\"").doesNotContain("AlertedAt");
+    }
+}
@@ -0,0 +1,89 @@
+package com.emart.service;
+
+import com.emart.MongoIntegrationTest;
+import com.emart.model.Invoice;
+import com.emart.model.Order;
+import com.emart.repository.InvoiceRepository;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvoiceGenerationIdempotencyTest extends MongoIntegrationTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    private final List<String> orderIds = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        orderIds.forEach(orderId -> invoiceRepository.findByOrderId(orderId).ifPresent(invoiceRepository::delete));
+        orderIds.clear();
+    }
+
+    @Test
+    void concurrentRetriesCreateOneInvoicePerOrder() throws Exception {
+        Order order = order();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Invoice>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return invoiceService.generateInvoiceForOrder(order);
+                }));
+            }
+            start.countDown();
+
+            Set<String> invoiceIds = new HashSet<>();
+            for (Future<Invoice> result : results) {
+                invoiceIds.add(result.get().getId());
+            }
+            assertThat(invoiceIds).hasSize(1);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // findByOrderId would throw if a second invoice had slipped in
+        assertThat(invoiceRepository.findByOrderId(order.getId())).isPresent();
+        assertThat(invoiceRepository.findAll().stream()
+                .filter(invoice -> order.getId().equals(invoice.getOrderId()))
+                .count()).isEqualTo(1);
+    }
+
+    private Order order() {
+        Order order = new Order();
+        order.setId(new ObjectId().toHexString());
+        order.setOrderNumber("ORD-TEST-" + order.getId());
+        order.setCustomerId("customer-1");
+        order.setCustomerName("Test Customer");
+        order.setCustomerEmail("customer@example.com");
+        order.setItems(List.of(new Order.OrderItem("product-1", "Product", "BC-1", 1,
+                new BigDecimal("10.00"), new BigDecimal("10.00"))));
+        order.setSubtotal(new BigDecimal("10.00"));
+        order.setTax(new BigDecimal("1.00"));
+        order.setTotal(new BigDecimal("11.00"));
+        orderIds.add(order.getId());
+        return order;
+    }
+}
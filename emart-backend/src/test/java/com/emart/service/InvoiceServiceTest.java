@@ -0,0 +1,105 @@
+package com.emart.service;
+
+import com.emart.model.Invoice;
+import com.emart.repository.InvoiceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class InvoiceServiceTest {
+
+    @Mock
+    private InvoiceRepository invoiceRepository;
+
+    @Mock
+    private InvoicePdfRenderer invoicePdfRenderer;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private InvoiceService invoiceService;
+
+    @TempDir
+    Path outputDirectory;
+
+    private final Invoice invoice = new Invoice();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(invoiceService, "pdfOutputDirectory", outputDirectory.toString());
+
+        invoice.setId("invoice-1");
+        invoice.setInvoiceNumber("INV-1");
+        invoice.setTotal(new BigDecimal("11.00"));
+        when(invoiceRepository.findById("invoice-1")).thenReturn(Optional.of(invoice));
+    }
+
+    @Test
+    void failedRenderLeavesNoTempFile() throws IOException {
+        doAnswer(invocation -> {
+            invocation.getArgument(1, OutputStream.class).write("%PDF-partial".getBytes(StandardCharsets.US_ASCII));
+            throw new IllegalStateException("render failed");
+        }).when(invoicePdfRenderer).render(any(), any());
+
+        assertThatThrownBy(() -> invoiceService.getInvoicePdf("invoice-1")).hasMessage("render failed");
+
+        assertThat(files()).isEmpty();
+    }
+
+    @Test
+    void successfulRenderKeepsOnlyTheCachedPdf() throws IOException {
+        doAnswer(invocation -> {
+            invocation.getArgument(1, OutputStream.class).write("%PDF-1.7".getBytes(StandardCharsets.US_ASCII));
+            return null;
+        }).when(invoicePdfRenderer).render(any(), any());
+
+        InvoiceService.InvoicePdf pdf = invoiceService.getInvoicePdf("invoice-1");
+
+        assertThat(files()).containsExactly(pdf.path().getFileName().toString());
+        assertThat(pdf.path().getFileName().toString()).startsWith("INV-1-").endsWith(".pdf");
+    }
+
+    @Test
+    void failedRenderKeepsThePreviouslyCachedPdf() throws IOException {
+        doAnswer(invocation -> null).when(invoicePdfRenderer).render(any(), any());
+        InvoiceService.InvoicePdf cached = invoiceService.getInvoicePdf("invoice-1");
+
+        // A changed invoice renders under a new hash; that render fails
+        invoice.setTotal(new BigDecimal("12.00"));
+        doThrow(new IllegalStateException("render failed")).when(invoicePdfRenderer).render(any(), any());
+        assertThatThrownBy(() -> invoiceService.getInvoicePdf("invoice-1")).hasMessage("render failed");
+
+        assertThat(files()).containsExactly(cached.path().getFileName().toString());
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> paths = Files.list(outputDirectory)) {
+            return paths.map(path -> path.getFileName().toString()).toList();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.emart.service;
+
+import com.emart.MongoCommandCounter;
+import com.emart.MongoIntegrationTest;
+import com.emart.model.Order;
+import com.emart.model.Product;
+import com.emart.model.User;
+import com.emart.repository.ProductRepository;
+import com.emart.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * createOrder latency and product round trips against basket size. Products
+ * are loaded with one batch query per order, so the number of round trips to
+ * the products collection must not grow with the number of lines.
+ */
+@Slf4j
+class OrderCreationBenchmarkTest extends MongoIntegrationTest {
+
+    private static final int[] BASKET_SIZES = {1, 10, 50, 100};
+    private static final int WARMUP_ORDERS = 5;
+    private static final int MEASURED_ORDERS = 20;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MongoCommandCounter mongoCommandCounter;
+
+    private final List<String> productIds = new ArrayList<>();
+    private String customerId;
+
+    @AfterEach
+    void cleanUp() {
+        productRepository.deleteAllById(productIds);
+        productIds.clear();
+        if (customerId != null) {
+            userRepository.deleteById(customerId);
+        }
+    }
+
+    @Test
+    void productRoundTripsDoNotGrowWithBasketSize() {
+        customerId = createCustomer();
+        List<String> products = createProducts(BASKET_SIZES[BASKET_SIZES.length - 1]);
+
+        Map<Integer, Integer> roundTrips = new LinkedHashMap<>();
+        for (int basketSize : BASKET_SIZES) {
+            List<String> basket = products.subList(0, basketSize);
+            for (int i = 0; i < WARMUP_ORDERS; i++) {
+                orderService.createOrder(orderFor(basket), customerId);
+            }
+
+            long elapsedNanos = 0;
+            int productCommands = 0;
+            for (int i = 0; i < MEASURED_ORDERS; i++) {
+                mongoCommandCounter.reset();
+                long start = System.nanoTime();
+                orderService.createOrder(orderFor(basket), customerId);
+                elapsedNanos += System.nanoTime() - start;
+                productCommands = mongoCommandCounter.commandsFromCurrentThread("products").size();
+            }
+
+            roundTrips.put(basketSize, productCommands);
+            log.info("createOrder with {} lines: {} ms average, {} round trips to products",
+                    basketSize, String.format("%.2f", elapsedNanos / 1e6 / MEASURED_ORDERS), productCommands);
+        }
+
+        assertThat(roundTrips.values()).as("product round trips by basket size %s", roundTrips)
+                .containsOnly(roundTrips.get(BASKET_SIZES[0]));
+    }
+
+    private Order orderFor(List<String> basket) {
+        List<Order.OrderItem> items = basket.stream()
+                .map(productId -> new Order.OrderItem(productId, null, null, 1, null, null))
+                .toList();
+        Order order = new Order();
+        order.setItems(new ArrayList<>(items));
+        return order;
+    }
+
+    private String createCustomer() {
+        String suffix = UUID.randomUUID().toString();
+        User customer = new User();
+        customer.setUsername("bench-" + suffix);
+        customer.setEmail("bench-" + suffix + "@example.com");
+        customer.setFirstName("Bench");
+        customer.setLastName("Customer");
+        customer.setRole(User.UserRole.CUSTOMER);
+        return userRepository.save(customer).getId();
+    }
+
+    private List<String> createProducts(int count) {
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setBarcode("BENCH-" + UUID.randomUUID());
+            product.setName("Benchmark product " + i);
+            product.setPrice(new BigDecimal("4.50"));
+            product.setQuantity(1_000_000);
+            product.setBestBefore(LocalDate.now().plusYears(1));
+            product.setStatus(Product.ProductStatus.APPROVED);
+            productIds.add(productRepository.save(product).getId());
+        }
+        return productIds;
+    }
+}
@@ -0,0 +1,155 @@
+package com.emart.service;
+
+import com.emart.model.Invoice;
+import com.emart.model.Order;
+import com.emart.model.OrderOutboxTask;
+import com.emart.repository.OrderOutboxRepository;
+import com.emart.repository.OrderRepository;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderPostProcessingServiceTest {
+
+    private static final LocalDateTime LEASE = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Mock
+    private OrderOutboxRepository orderOutboxRepository;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private InvoiceService invoiceService;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private OrderPostProcessingService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new OrderPostProcessingService(
+                orderOutboxRepository, orderRepository, invoiceService, emailService, mongoTemplate);
+        ReflectionTestUtils.setField(service, "maxAttempts", 5);
+        ReflectionTestUtils.setField(service, "retryDelayMs", 2000L);
+        ReflectionTestUtils.setField(service, "leaseMs", 60_000L);
+    }
+
+    @Test
+    void completesUnderTheClaimedLease() {
+        stubClaim(OrderOutboxTask.Stage.SEND_CONFIRMATION);
+        when(orderRepository.findById("order-1")).thenReturn(Optional.of(order()));
+        stubTaskWrites(1);
+
+        process();
+
+        verify(emailService).sendOrderConfirmation(anyString(), anyString(), anyString(), anyString());
+        Update update = assertGuardedTaskWrite();
+        assertThat(setOf(update).get("status")).isEqualTo(OrderOutboxTask.Status.COMPLETED);
+    }
+
+    @Test
+    void lostLeaseAfterTheInvoiceLeavesTheEmailToTheNewHolder() {
+        stubClaim(OrderOutboxTask.Stage.GENERATE_INVOICE);
+        Order order = order();
+        when(orderRepository.findById("order-1")).thenReturn(Optional.of(order));
+        Invoice invoice = new Invoice();
+        invoice.setId("invoice-1");
+        when(invoiceService.generateInvoiceForOrder(order)).thenReturn(invoice);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Order.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        stubTaskWrites(0);
+
+        process();
+
+        verify(emailService, never()).sendOrderConfirmation(anyString(), anyString(), anyString(), anyString());
+        Update update = assertGuardedTaskWrite();
+        assertThat(setOf(update).get("stage")).isEqualTo(OrderOutboxTask.Stage.SEND_CONFIRMATION);
+    }
+
+    @Test
+    void failureIsRecordedOnlyUnderTheClaimedLease() {
+        stubClaim(OrderOutboxTask.Stage.SEND_CONFIRMATION);
+        when(orderRepository.findById("order-1")).thenReturn(Optional.empty());
+        stubTaskWrites(0);
+
+        process();
+
+        // The stale worker's retry is dropped instead of flipping the task back to PENDING
+        Update update = assertGuardedTaskWrite();
+        assertThat(setOf(update).get("status")).isEqualTo(OrderOutboxTask.Status.PENDING);
+        verify(orderOutboxRepository, never()).save(any());
+    }
+
+    private void process() {
+        ReflectionTestUtils.invokeMethod(service, "process", "task-1");
+    }
+
+    private void stubClaim(OrderOutboxTask.Stage stage) {
+        OrderOutboxTask task = new OrderOutboxTask();
+        task.setId("task-1");
+        task.setOrderId("order-1");
+        task.setStage(stage);
+        task.setStatus(OrderOutboxTask.Status.PROCESSING);
+        task.setLeaseExpiresAt(LEASE);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(OrderOutboxTask.class))).thenReturn(task);
+    }
+
+    private void stubTaskWrites(long matched) {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(OrderOutboxTask.class)))
+                .thenReturn(UpdateResult.acknowledged(matched, matched, null));
+    }
+
+    private Update assertGuardedTaskWrite() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(OrderOutboxTask.class));
+        assertThat(query.getValue().getQueryObject())
+                .containsEntry("_id", "task-1")
+                .containsEntry("status", OrderOutboxTask.Status.PROCESSING)
+                .containsEntry("leaseExpiresAt", LEASE);
+        return update.getValue();
+    }
+
+    private static Document setOf(Update update) {
+        return (Document) update.getUpdateObject().get("$set");
+    }
+
+    private static Order order() {
+        Order order = new Order();
+        order.setId("order-1");
+        order.setCustomerEmail("customer@example.com");
+        order.setCustomerName("Customer");
+        order.setOrderNumber("ORD-1");
+        order.setTotal(new BigDecimal("20.00"));
+        return order;
+    }
+}
@@ -0,0 +1,163 @@
+package com.emart.service;
+
+import com.emart.model.Order;
+import com.emart.model.OrderOutboxTask;
+import com.emart.model.Product;
+import com.emart.model.User;
+import com.emart.repository.OrderRepository;
+import com.emart.repository.ProductRepository;
+import com.emart.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private OrderPostProcessingService orderPostProcessingService;
+
+    @Mock
+    private SequenceService sequenceService;
+
+    @InjectMocks
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        User customer = new User();
+        customer.setId("customer-1");
+        customer.setRole(User.UserRole.CUSTOMER);
+        when(userRepository.findById("customer-1")).thenReturn(Optional.of(customer));
+    }
+
+    @Test
+    void rejectsNegativeQuantity() {
+        assertRejected(orderWith(new Order.OrderItem("product-1", null, null, -5, null, null)),
+                "Quantity must be positive");
+    }
+
+    @Test
+    void rejectsZeroQuantity() {
+        assertRejected(orderWith(new Order.OrderItem("product-1", null, null, 0, null, null)),
+                "Quantity must be positive");
+    }
+
+    @Test
+    void rejectsMissingQuantity() {
+        assertRejected(orderWith(new Order.OrderItem("product-1", null, null, null, null, null)),
+                "Quantity must be positive");
+    }
+
+    @Test
+    void rejectsMissingProduct() {
+        assertRejected(orderWith(new Order.OrderItem(null, null, null, 1, null, null)),
+                "missing a product");
+    }
+
+    @Test
+    void writesTheOutboxTaskBeforeTheOrder() {
+        stubBasket();
+        OrderOutboxTask task = new OrderOutboxTask();
+        when(orderPostProcessingService.prepare(anyString())).thenReturn(task);
+        when(orderRepository.insert(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Order order = orderService.createOrder(orderWith(new Order.OrderItem("product-1", null, null, 2, null, null)),
+                "customer-1");
+
+        assertThat(order.getId()).isNotNull();
+        InOrder writes = inOrder(productService, orderPostProcessingService, orderRepository);
+        writes.verify(productService).reserveStock(Map.of("product-1", 2));
+        writes.verify(orderPostProcessingService).prepare(order.getId());
+        writes.verify(orderRepository).insert(order);
+        writes.verify(orderPostProcessingService).start(task);
+    }
+
+    @Test
+    void discardsTheTaskAndReleasesStockWhenTheOrderInsertFails() {
+        stubBasket();
+        OrderOutboxTask task = new OrderOutboxTask();
+        when(orderPostProcessingService.prepare(anyString())).thenReturn(task);
+        when(orderRepository.insert(any(Order.class))).thenThrow(new RuntimeException("insert failed"));
+
+        assertThatThrownBy(() -> orderService.createOrder(
+                orderWith(new Order.OrderItem("product-1", null, null, 2, null, null)), "customer-1"))
+                .hasMessage("insert failed");
+
+        verify(orderPostProcessingService).discard(task);
+        verify(productService).releaseStock(Map.of("product-1", 2));
+        verify(orderPostProcessingService, never()).start(any());
+    }
+
+    @Test
+    void failedReservationIsNotReleasedAgain() {
+        stubBasket();
+        doThrow(new RuntimeException("Insufficient stock for one or more products"))
+                .when(productService).reserveStock(any());
+
+        assertThatThrownBy(() -> orderService.createOrder(
+                orderWith(new Order.OrderItem("product-1", null, null, 2, null, null)), "customer-1"))
+                .hasMessageContaining("Insufficient stock");
+
+        // reserveStock undoes its own partial work; a blanket release would add stock that was never taken
+        verify(productService, never()).releaseStock(any());
+        verifyNoInteractions(orderPostProcessingService, orderRepository);
+    }
+
+    private void stubBasket() {
+        Product product = new Product();
+        product.setId("product-1");
+        product.setName("Product");
+        product.setPrice(new BigDecimal("10.00"));
+        product.setQuantity(5);
+        product.setStatus(Product.ProductStatus.APPROVED);
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
+        when(sequenceService.nextNumber(any(), any())).thenReturn("ORD-1");
+    }
+
+    private void assertRejected(Order order, String message) {
+        assertThatThrownBy(() -> orderService.createOrder(order, "customer-1"))
+                .hasMessageContaining(message);
+
+        verifyNoInteractions(productRepository);
+        verify(productService, never()).reserveStock(any());
+    }
+
+    private Order orderWith(Order.OrderItem item) {
+        Order order = new Order();
+        order.setItems(List.of(item));
+        return order;
+    }
+}
@@ -0,0 +1,127 @@
+package com.emart.service;
+
+import com.emart.MongoIntegrationTest;
+import com.emart.model.Order;
+import com.emart.model.Payment;
+import com.emart.repository.OrderRepository;
+import com.emart.repository.PaymentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentReconciliationTest extends MongoIntegrationTest {
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentGateway paymentGateway;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private final List<String> paymentIds = new ArrayList<>();
+    private final List<String> orderIds = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        paymentRepository.deleteAllById(paymentIds);
+        orderRepository.deleteAllById(orderIds);
+        paymentIds.clear();
+        orderIds.clear();
+    }
+
+    @Test
+    void stalePaymentIsSettledFromTheGateway() throws Exception {
+        // A charge the gateway never saw, left behind by a restart an hour ago
+        Payment payment = new Payment();
+        payment.setTransactionId("TXN-TEST-" + UUID.randomUUID());
+        payment.setAmount(new BigDecimal("25.00"));
+        payment.setPaymentMethod(Payment.PaymentMethod.CREDIT_CARD);
+        payment.setStatus(Payment.PaymentStatus.PROCESSING);
+        payment.setPaymentDate(LocalDateTime.now().minusHours(1));
+        payment.setUpdatedAt(LocalDateTime.now().minusHours(1));
+        String paymentId = paymentRepository.save(payment).getId();
+        paymentIds.add(paymentId);
+
+        paymentService.reconcileStalePayments();
+
+        Payment settled = awaitStatusOtherThan(paymentId, Payment.PaymentStatus.PROCESSING, Duration.ofSeconds(5));
+        assertThat(settled.getStatus()).isEqualTo(Payment.PaymentStatus.FAILED);
+        assertThat(settled.getFailureReason()).contains("No charge found");
+    }
+
+    @Test
+    void recentProcessingPaymentIsLeftAlone() throws Exception {
+        Payment payment = new Payment();
+        payment.setTransactionId("TXN-TEST-" + UUID.randomUUID());
+        payment.setAmount(new BigDecimal("25.00"));
+        payment.setPaymentMethod(Payment.PaymentMethod.CREDIT_CARD);
+        payment.setStatus(Payment.PaymentStatus.PROCESSING);
+        payment.setPaymentDate(LocalDateTime.now());
+        payment.setUpdatedAt(LocalDateTime.now());
+        String paymentId = paymentRepository.save(payment).getId();
+        paymentIds.add(paymentId);
+
+        paymentService.reconcileStalePayments();
+        Thread.sleep(500);
+
+        assertThat(paymentRepository.findById(paymentId).orElseThrow().getStatus())
+                .isEqualTo(Payment.PaymentStatus.PROCESSING);
+    }
+
+    @Test
+    void gatewayOutcomeDoesNotOverwriteAnAdminDecision() throws Exception {
+        Payment payment = paymentService.processPayment(createOrder(), Payment.PaymentMethod.CREDIT_CARD,
+                new BigDecimal("25.00"), "test");
+        paymentIds.add(payment.getId());
+
+        // The admin settles the payment while the simulated charge is still in flight
+        paymentService.updatePaymentStatus(payment.getId(), Payment.PaymentStatus.CANCELLED);
+
+        paymentGateway.lookup(payment).get(10, TimeUnit.SECONDS);
+        Thread.sleep(500);
+
+        assertThat(paymentRepository.findById(payment.getId()).orElseThrow().getStatus())
+                .isEqualTo(Payment.PaymentStatus.CANCELLED);
+    }
+
+    private String createOrder() {
+        Order order = new Order();
+        order.setOrderNumber("ORD-TEST-" + UUID.randomUUID());
+        order.setCustomerId("customer-1");
+        order.setCustomerName("Test Customer");
+        order.setCustomerEmail("customer@example.com");
+        order.setTotal(new BigDecimal("25.00"));
+        order.setStatus(Order.OrderStatus.PENDING);
+        order.setPaymentStatus(Order.PaymentStatus.PENDING);
+        order.setOrderDate(LocalDateTime.now());
+        String orderId = orderRepository.save(order).getId();
+        orderIds.add(orderId);
+        return orderId;
+    }
+
+    private Payment awaitStatusOtherThan(String paymentId, Payment.PaymentStatus status, Duration timeout)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Payment payment = paymentRepository.findById(paymentId).orElseThrow();
+        while (payment.getStatus() == status && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+            payment = paymentRepository.findById(paymentId).orElseThrow();
+        }
+        return payment;
+    }
+}
@@ -0,0 +1,101 @@
+package com.emart.service;
+
+import com.emart.model.Payment;
+import com.emart.repository.PaymentRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentServiceTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private RevenueRollupService revenueRollupService;
+
+    @Mock
+    private SequenceService sequenceService;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private PaymentService paymentService;
+
+    @Test
+    void statusChangeRecordsTheStoredPreviousStatus() {
+        // The caller may have read PENDING, but the stored document was already COMPLETED
+        Payment stored = payment(Payment.PaymentStatus.COMPLETED);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(Payment.class))).thenReturn(stored);
+
+        Payment updated = paymentService.updatePaymentStatus("payment-1", Payment.PaymentStatus.CANCELLED);
+
+        verify(revenueRollupService).recordPaymentStatusChange(stored, Payment.PaymentStatus.COMPLETED,
+                Payment.PaymentStatus.CANCELLED);
+        assertThat(updated.getStatus()).isEqualTo(Payment.PaymentStatus.CANCELLED);
+        verify(paymentRepository, never()).save(any());
+    }
+
+    @Test
+    void statusChangeOfMissingPaymentFails() {
+        assertThatThrownBy(() -> paymentService.updatePaymentStatus("payment-1", Payment.PaymentStatus.CANCELLED))
+                .hasMessage("Payment not found");
+        verifyNoInteractions(revenueRollupService);
+    }
+
+    @Test
+    void refundClaimsTheCompletedPaymentAtomically() {
+        Payment completed = payment(Payment.PaymentStatus.COMPLETED);
+        when(paymentRepository.findById("payment-1")).thenReturn(Optional.of(completed));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(Payment.class))).thenReturn(completed);
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Payment refund = paymentService.refundPayment("payment-1", new BigDecimal("10.00"), "damaged");
+
+        assertThat(refund.getAmount()).isEqualByComparingTo("-10.00");
+        verify(revenueRollupService).recordPaymentStatusChange(completed, Payment.PaymentStatus.COMPLETED,
+                Payment.PaymentStatus.REFUNDED);
+        verify(revenueRollupService).recordPaymentStatusChange(refund, null, Payment.PaymentStatus.COMPLETED);
+    }
+
+    @Test
+    void refundLosingTheRaceCreatesNoRefund() {
+        // Read as COMPLETED, but a concurrent refund moved it on before the conditional update
+        when(paymentRepository.findById("payment-1")).thenReturn(Optional.of(payment(Payment.PaymentStatus.COMPLETED)));
+
+        assertThatThrownBy(() -> paymentService.refundPayment("payment-1", new BigDecimal("10.00"), "damaged"))
+                .hasMessage("Cannot refund payment that is not completed");
+
+        verify(paymentRepository, never()).save(any());
+        verifyNoInteractions(revenueRollupService);
+    }
+
+    private Payment payment(Payment.PaymentStatus status) {
+        Payment payment = new Payment();
+        payment.setId("payment-1");
+        payment.setOrderId("order-1");
+        payment.setAmount(new BigDecimal("25.00"));
+        payment.setPaymentMethod(Payment.PaymentMethod.CREDIT_CARD);
+        payment.setStatus(status);
+        return payment;
+    }
+}
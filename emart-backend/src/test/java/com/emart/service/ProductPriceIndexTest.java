@@ -0,0 +1,90 @@
+package com.emart.service;
+
+import com.emart.model.Product;
+import com.emart.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductPriceIndexTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductPriceIndex index = new ProductPriceIndex(productRepository);
+
+    @BeforeEach
+    void setUp() {
+        when(productRepository.findByStatus(Product.ProductStatus.APPROVED)).thenReturn(List.of(
+                product("p1", "5.00"),
+                product("p2", "10.00"),
+                product("p3", "10.005"),
+                product("p4", "10.0"),
+                product("p5", "20.00")));
+        index.rebuild();
+    }
+
+    @Test
+    void boundsAreInclusiveAndCompareExactPrices() {
+        assertThat(ids(find("5.00", "10.00", false))).containsExactly("p1", "p2", "p4");
+        assertThat(ids(find("10.001", "20", false))).containsExactly("p3", "p5");
+        assertThat(ids(find("10.005", "10.005", false))).containsExactly("p3");
+        assertThat(find("10.01", "19.99", false)).isEmpty();
+        assertThat(find("20.00", "10.00", false)).isEmpty();
+    }
+
+    @Test
+    void equalPricesAreOrderedByIdInBothDirections() {
+        // 10.00 and 10.0 are the same price whatever their scale
+        assertThat(ids(find("0", "100", false))).containsExactly("p1", "p2", "p4", "p3", "p5");
+        assertThat(ids(find("0", "100", true))).containsExactly("p5", "p3", "p4", "p2", "p1");
+    }
+
+    @Test
+    void appliesOffsetAndLimit() {
+        assertThat(ids(index.findByPriceRange(new BigDecimal("0"), new BigDecimal("100"), 1, 2, false)))
+                .containsExactly("p2", "p4");
+        assertThat(ids(index.findByPriceRange(new BigDecimal("0"), new BigDecimal("100"), 4, 10, false)))
+                .containsExactly("p5");
+        assertThat(index.findByPriceRange(new BigDecimal("0"), new BigDecimal("100"), 5, 10, false)).isEmpty();
+        assertThat(index.findByPriceRange(new BigDecimal("0"), new BigDecimal("100"), 0, 0, false)).isEmpty();
+    }
+
+    @Test
+    void savesMoveAndDropProducts() {
+        index.onProductSaved(product("p1", "15.00"));
+        Product unlisted = product("p5", "20.00");
+        unlisted.setStatus(Product.ProductStatus.OUT_OF_STOCK);
+        index.onProductSaved(unlisted);
+        index.onProductSaved(product("p6", "7.50"));
+
+        assertThat(ids(find("0", "100", false))).containsExactly("p6", "p2", "p4", "p3", "p1");
+    }
+
+    @Test
+    void deletesDropProducts() {
+        index.onProductDeleted(product("p3", "10.005"));
+
+        assertThat(ids(find("10", "10.01", false))).containsExactly("p2", "p4");
+    }
+
+    private List<Product> find(String min, String max, boolean descending) {
+        return index.findByPriceRange(new BigDecimal(min), new BigDecimal(max), 0, 100, descending);
+    }
+
+    private static List<String> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+
+    private static Product product(String id, String price) {
+        Product product = new Product();
+        product.setId(id);
+        product.setPrice(new BigDecimal(price));
+        product.setStatus(Product.ProductStatus.APPROVED);
+        return product;
+    }
+}
@@ -0,0 +1,135 @@
+package com.emart.service;
+
+import com.emart.MongoCommandCounter;
+import com.emart.MongoIntegrationTest;
+import com.emart.model.Product;
+import com.emart.model.User;
+import com.emart.repository.ProductRepository;
+import com.emart.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Per-product read cost with the embedded supplier snapshot, against the
+ * per-product supplier lookup the old DBRef performed. Product reads must
+ * not touch the users collection at all, whatever the listing size.
+ */
+@Slf4j
+class ProductReadCostBenchmarkTest extends MongoIntegrationTest {
+
+    private static final int PRODUCTS = 200;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 20;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MongoCommandCounter mongoCommandCounter;
+
+    private final List<String> productIds = new ArrayList<>();
+    private String supplierId;
+
+    @AfterEach
+    void cleanUp() {
+        productRepository.deleteAllById(productIds);
+        productIds.clear();
+        if (supplierId != null) {
+            userRepository.deleteById(supplierId);
+        }
+    }
+
+    @Test
+    void productReadsDoNotLoadTheSupplier() {
+        supplierId = createSupplier();
+        List<String> barcodes = createProducts();
+
+        Measurement listing = measure("supplier listing", () -> productService.getProductsBySupplier(supplierId));
+        Measurement page = measure("first page", () -> productService.getProductsPage(null, PRODUCTS).items());
+        Measurement lookup = measure("barcode lookup", () -> List.of(productService.getProductByBarcode(barcodes.get(0))));
+
+        // What every read used to pay: one supplier load per product returned
+        Measurement dbRef = measure("listing with supplier lookups", () -> {
+            List<Product> products = productService.getProductsBySupplier(supplierId);
+            products.forEach(product -> userRepository.findById(product.getSupplierId()));
+            return products;
+        });
+
+        for (Measurement measurement : List.of(listing, page, lookup)) {
+            assertThat(measurement.userCommands()).as("users commands for %s", measurement.name()).isZero();
+            assertThat(measurement.productCommands()).as("products commands for %s", measurement.name()).isEqualTo(1);
+        }
+        assertThat(dbRef.userCommands()).isEqualTo(PRODUCTS);
+    }
+
+    private Measurement measure(String name, Supplier<List<Product>> read) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            read.get();
+        }
+
+        long elapsedNanos = 0;
+        int products = 0;
+        int userCommands = 0;
+        int productCommands = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            mongoCommandCounter.reset();
+            long start = System.nanoTime();
+            products = read.get().size();
+            elapsedNanos += System.nanoTime() - start;
+            userCommands = mongoCommandCounter.commandsFromCurrentThread("users").size();
+            productCommands = mongoCommandCounter.commandsFromCurrentThread("products").size();
+        }
+
+        double averageMicros = elapsedNanos / 1e3 / MEASURED_ROUNDS;
+        log.info("{}: {} products, {} us per read, {} us per product, {} users / {} products round trips",
+                name, products, String.format("%.0f", averageMicros), String.format("%.1f", averageMicros / products),
+                userCommands, productCommands);
+        return new Measurement(name, userCommands, productCommands);
+    }
+
+    private String createSupplier() {
+        String suffix = UUID.randomUUID().toString();
+        User supplier = new User();
+        supplier.setUsername("bench-supplier-" + suffix);
+        supplier.setEmail("bench-supplier-" + suffix + "@example.com");
+        supplier.setFirstName("Bench");
+        supplier.setLastName("Supplier");
+        supplier.setRole(User.UserRole.SUPPLIER);
+        return userRepository.save(supplier).getId();
+    }
+
+    private List<String> createProducts() {
+        List<String> barcodes = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setName("Read cost product " + i);
+            product.setPrice(new BigDecimal("3.20"));
+            product.setQuantity(100);
+            product.setBestBefore(LocalDate.now().plusYears(1));
+            Product created = productService.createProduct(product, supplierId);
+            productIds.add(created.getId());
+            barcodes.add(created.getBarcode());
+        }
+        return barcodes;
+    }
+
+    private record Measurement(String name, int userCommands, int productCommands) {
+    }
+}
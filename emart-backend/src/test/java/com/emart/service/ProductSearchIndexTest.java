@@ -0,0 +1,135 @@
+package com.emart.service;
+
+import com.emart.model.Product;
+import com.emart.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductSearchIndexTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductSearchIndex index = new ProductSearchIndex(productRepository);
+
+    @BeforeEach
+    void setUp() {
+        when(productRepository.findAll()).thenReturn(List.of(
+                product("p1", "Green Apple", "Crisp and sour", "EM1000000001"),
+                product("p2", "Apple Juice", "Pressed from green apples", "EM1000000002"),
+                product("p3", "Pineapple Slices", "Canned fruit", "EM2000000003"),
+                product("p4", "Banana", "Ripe yellow banana", "EM2000000004")));
+        index.rebuild();
+    }
+
+    @Test
+    void ranksNameWordsAbovePrefixesInfixesAndDescriptions() {
+        // p1 and p2 have the word "apple" in the name, p3 only contains it
+        assertThat(ids(index.search("apple", 0, 10))).containsExactly("p2", "p1", "p3");
+
+        // Ties on score fall back to the name, then the id
+        assertThat(ids(index.search("app", 0, 10))).containsExactly("p2", "p1", "p3");
+    }
+
+    @Test
+    void everyTokenHasToMatch() {
+        assertThat(ids(index.search("green apple", 0, 10))).containsExactly("p1", "p2");
+        assertThat(ids(index.search("apple banana", 0, 10))).isEmpty();
+    }
+
+    @Test
+    void findsSubstringsInsideTheName() {
+        assertThat(ids(index.search("neapp", 0, 10))).containsExactly("p3");
+        assertThat(ids(index.search("nan", 0, 10))).containsExactly("p4");
+    }
+
+    @Test
+    void matchesBarcodePrefixes() {
+        assertThat(ids(index.search("em2", 0, 10))).containsExactly("p4", "p3");
+        assertThat(ids(index.search("EM1000000002", 0, 10))).containsExactly("p2");
+    }
+
+    @Test
+    void singleLettersDoNotMatchAsPrefixes() {
+        assertThat(index.search("a", 0, 10)).isEmpty();
+        assertThat(ids(index.search("ba", 0, 10))).containsExactly("p4");
+    }
+
+    @Test
+    void appliesOffsetAndLimitToTheRanking() {
+        assertThat(ids(index.search("apple", 1, 1))).containsExactly("p1");
+        assertThat(ids(index.search("apple", 2, 10))).containsExactly("p3");
+        assertThat(index.search("apple", 3, 10)).isEmpty();
+        assertThat(index.search("apple", 0, 0)).isEmpty();
+    }
+
+    @Test
+    void savesReplaceTheIndexedTerms() {
+        index.onProductSaved(product("p4", "Mango", "Ripe yellow mango", "EM2000000004"));
+
+        assertThat(index.search("banana", 0, 10)).isEmpty();
+        assertThat(ids(index.search("mango", 0, 10))).containsExactly("p4");
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    void deletedAndExpiredProductsLeaveTheIndex() {
+        index.onProductDeleted(product("p1", "Green Apple", null, null));
+        Product expired = product("p2", "Apple Juice", null, "EM1000000002");
+        expired.setStatus(Product.ProductStatus.EXPIRED);
+        index.onProductSaved(expired);
+
+        assertThat(ids(index.search("apple", 0, 10))).containsExactly("p3");
+        assertThat(index.search("green", 0, 10)).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void saveDuringRebuildIsNotLost() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(productRepository.findAll()).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            // Read before the save below committed
+            return List.of(product("p1", "Green Apple", null, null));
+        });
+
+        Thread rebuild = new Thread(index::rebuild);
+        rebuild.start();
+        assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+
+        Thread save = new Thread(() -> index.onProductSaved(product("p1", "Red Apple", null, null)));
+        save.start();
+        // The save waits for the rebuild rather than being overwritten by it
+        while (save.getState() != Thread.State.BLOCKED && save.isAlive()) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        rebuild.join(10_000);
+        save.join(10_000);
+
+        assertThat(ids(index.search("red", 0, 10))).containsExactly("p1");
+        assertThat(index.search("green", 0, 10)).isEmpty();
+    }
+
+    private static List<String> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+
+    private static Product product(String id, String name, String description, String barcode) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setDescription(description);
+        product.setBarcode(barcode);
+        product.setStatus(Product.ProductStatus.APPROVED);
+        return product;
+    }
+}
@@ -0,0 +1,127 @@
+package com.emart.service;
+
+import com.emart.model.Product;
+import com.emart.repository.ProductRepository;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ProductExpiryTracker productExpiryTracker;
+
+    @InjectMocks
+    private ProductService productService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(productService, "expiryBatchSize", 2);
+        ReflectionTestUtils.setField(productService, "reservationAbandonAfterMs", 600_000L);
+    }
+
+    @Test
+    void failedExpiryBatchPutsTheUnfinishedIdsBack() {
+        stubDueProducts();
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Product.class)))
+                .thenReturn(UpdateResult.acknowledged(2, 2L, null))
+                .thenThrow(new DataAccessResourceFailureException("connection reset"));
+
+        productService.expireDueProducts();
+
+        verify(productExpiryTracker).retry(List.of("p3", "p4", "p5"));
+    }
+
+    @Test
+    void completedExpiryRunReschedulesNothing() {
+        stubDueProducts();
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Product.class)))
+                .thenReturn(UpdateResult.acknowledged(2, 2L, null));
+
+        productService.expireDueProducts();
+
+        verify(productExpiryTracker, never()).retry(any());
+    }
+
+    @Test
+    void failedReservationBulkUndoesTheLinesItApplied() {
+        BulkOperations reservations = mock(BulkOperations.class);
+        BulkOperations compensation = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class))
+                .thenReturn(reservations, compensation);
+        when(reservations.execute()).thenThrow(new DataAccessResourceFailureException("connection reset"));
+
+        assertThatThrownBy(() -> productService.reserveStock(Map.of("p1", 2)))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+
+        ArgumentCaptor<Query> undone = ArgumentCaptor.forClass(Query.class);
+        verify(compensation).updateOne(undone.capture(), any(UpdateDefinition.class));
+        verify(compensation).execute();
+        Document guard = undone.getValue().getQueryObject();
+        assertThat(guard.get("_id")).isEqualTo("p1");
+        assertThat(guard.keySet()).anyMatch(key -> key.startsWith("stockReservations."));
+        verify(mongoTemplate, never()).updateMulti(any(Query.class), any(Update.class), eq(Product.class));
+    }
+
+    @Test
+    void sweepReleasesOnlyAbandonedReservations() {
+        ObjectId productId = new ObjectId();
+        String abandoned = new ObjectId(new Date(System.currentTimeMillis() - 3_600_000)).toHexString();
+        String inFlight = new ObjectId().toHexString();
+        when(mongoTemplate.getCollectionName(Product.class)).thenReturn("products");
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("products"))).thenReturn(List.of(
+                new Document("_id", productId)
+                        .append("stockReservations", new Document(abandoned, 2).append(inFlight, 3))));
+        BulkOperations releases = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenReturn(releases);
+        when(releases.execute()).thenReturn(BulkWriteResult.acknowledged(0, 1, 0, 1, List.of(), List.of()));
+
+        productService.releaseAbandonedReservations();
+
+        ArgumentCaptor<Query> released = ArgumentCaptor.forClass(Query.class);
+        verify(releases).updateOne(released.capture(), any(UpdateDefinition.class));
+        assertThat(released.getValue().getQueryObject())
+                .containsEntry("_id", productId.toHexString())
+                .containsKey("stockReservations." + abandoned);
+        verify(productRepository).findAllById(List.of(productId.toHexString()));
+    }
+
+    private void stubDueProducts() {
+        when(productExpiryTracker.pollDue()).thenReturn(List.of("p1", "p2", "p3", "p4", "p5"));
+    }
+}
@@ -0,0 +1,136 @@
+package com.emart.service;
+
+import com.emart.MongoIntegrationTest;
+import com.emart.model.Product;
+import com.emart.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StockReservationConcurrencyTest extends MongoIntegrationTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final List<String> productIds = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        productRepository.deleteAllById(productIds);
+        productIds.clear();
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        int stock = 50;
+        int attempts = 400;
+        String productId = createProduct(stock);
+
+        int reserved = runConcurrently(attempts, () -> Map.of(productId, 1));
+
+        Product product = productRepository.findById(productId).orElseThrow();
+        assertThat(reserved).isEqualTo(stock);
+        assertThat(product.getQuantity()).isZero();
+        assertThat(product.getStatus()).isEqualTo(Product.ProductStatus.OUT_OF_STOCK);
+    }
+
+    @Test
+    void failedMultiProductReservationsAreRolledBack() throws Exception {
+        int scarceStock = 20;
+        int plentifulStock = 1_000;
+        String scarce = createProduct(scarceStock);
+        String plentiful = createProduct(plentifulStock);
+
+        // Every basket takes 2 of the plentiful product and 1 of the scarce one
+        int reserved = runConcurrently(200, () -> {
+            Map<String, Integer> basket = new LinkedHashMap<>();
+            basket.put(plentiful, 2);
+            basket.put(scarce, 1);
+            return basket;
+        });
+
+        assertThat(reserved).isEqualTo(scarceStock);
+        assertThat(productRepository.findById(scarce).orElseThrow().getQuantity()).isZero();
+        // Baskets that failed on the scarce product must have given the plentiful stock back
+        assertThat(productRepository.findById(plentiful).orElseThrow().getQuantity())
+                .isEqualTo(plentifulStock - 2 * scarceStock);
+    }
+
+    @Test
+    void nonPositiveQuantitiesAreRejected() {
+        String productId = createProduct(5);
+
+        assertThatThrownBy(() -> productService.reserveStock(Map.of(productId, -3)))
+                .hasMessageContaining("Quantity must be positive");
+        assertThatThrownBy(() -> productService.reserveStock(Map.of(productId, 0)))
+                .hasMessageContaining("Quantity must be positive");
+
+        assertThat(productRepository.findById(productId).orElseThrow().getQuantity()).isEqualTo(5);
+    }
+
+    // Runs the reservations from many threads at once and returns how many succeeded
+    private int runConcurrently(int attempts, Callable<Map<String, Integer>> basket) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < attempts; i++) {
+                results.add(executor.submit(() -> {
+                    Map<String, Integer> quantities = basket.call();
+                    start.await();
+                    try {
+                        productService.reserveStock(quantities);
+                        return true;
+                    } catch (RuntimeException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int succeeded = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    succeeded++;
+                }
+            }
+            return succeeded;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private String createProduct(int quantity) {
+        Product product = new Product();
+        product.setBarcode("TEST-" + UUID.randomUUID());
+        product.setName("Contended product");
+        product.setPrice(new BigDecimal("9.99"));
+        product.setQuantity(quantity);
+        product.setBestBefore(LocalDate.now().plusYears(1));
+        product.setStatus(Product.ProductStatus.APPROVED);
+        String id = productRepository.save(product).getId();
+        productIds.add(id);
+        return id;
+    }
+}
@@ -0,0 +1,114 @@
+package com.emart.service;
+
+import com.emart.model.User;
+import com.emart.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private CursorPager cursorPager;
+
+    @Mock
+    private ProductService productService;
+
+    private UserService userService;
+    private User alice;
+
+    @BeforeEach
+    void setUp() {
+        userService = new UserService(userRepository, passwordEncoder, cursorPager, productService);
+        ReflectionTestUtils.setField(userService, "userCacheMaxEntries", 100);
+        ReflectionTestUtils.setField(userService, "userCacheTtlMs", 300_000L);
+        userService.initUserCache();
+
+        alice = new User();
+        alice.setId("user-1");
+        alice.setUsername("alice");
+        alice.setPassword("hash-1");
+        alice.setRole(User.UserRole.CUSTOMER);
+        alice.setEnabled(true);
+        alice.setAccountNonExpired(true);
+        alice.setAccountNonLocked(true);
+        alice.setCredentialsNonExpired(true);
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(alice));
+    }
+
+    @Test
+    void cachesAnImmutableCopyOfTheUser() {
+        UserDetails first = userService.loadUserByUsername("alice");
+        alice.setPassword("changed-behind-the-cache");
+        UserDetails second = userService.loadUserByUsername("alice");
+
+        assertThat(first).isNotInstanceOf(User.class).isSameAs(second);
+        assertThat(second.getPassword()).isEqualTo("hash-1");
+        assertThat(second.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_CUSTOMER");
+        assertThat(second.isEnabled()).isTrue();
+        verify(userRepository, times(1)).findByUsername("alice");
+    }
+
+    @Test
+    void updateUserEvictsThePrincipal() {
+        when(userRepository.findById("user-1")).thenReturn(Optional.of(alice));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertReloadedAfter(() -> userService.updateUser("user-1", new User()));
+    }
+
+    @Test
+    void disableUserEvictsThePrincipal() {
+        when(userRepository.findById("user-1")).thenReturn(Optional.of(alice));
+
+        assertReloadedAfter(() -> userService.disableUser("user-1"));
+        assertThat(userService.loadUserByUsername("alice").isEnabled()).isFalse();
+    }
+
+    @Test
+    void deleteUserEvictsThePrincipal() {
+        when(userRepository.findById("user-1")).thenReturn(Optional.of(alice));
+
+        assertReloadedAfter(() -> userService.deleteUser("user-1"));
+        assertThat(userService.loadUserByUsername("alice").isEnabled()).isFalse();
+    }
+
+    @Test
+    void changePasswordEvictsThePrincipal() {
+        when(userRepository.findById("user-1")).thenReturn(Optional.of(alice));
+        when(passwordEncoder.matches("old", "hash-1")).thenReturn(true);
+        when(passwordEncoder.encode(anyString())).thenReturn("hash-2");
+
+        assertReloadedAfter(() -> userService.changePassword("user-1", "old", "new"));
+        assertThat(userService.loadUserByUsername("alice").getPassword()).isEqualTo("hash-2");
+    }
+
+    private void assertReloadedAfter(Runnable change) {
+        userService.loadUserByUsername("alice");
+        change.run();
+        userService.loadUserByUsername("alice");
+
+        verify(userRepository, times(2)).findByUsername("alice");
+    }
+}
@@ -0,0 +1,73 @@
+package com.emart.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedCacheTest {
+
+    @Test
+    void evictsLeastRecentlyUsedBeyondMaxEntries() {
+        BoundedCache<String, String> cache = new BoundedCache<>(2);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+
+        assertThat(cache.get("a")).isEqualTo("1");
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo("3");
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBeyondMaxWeight() {
+        BoundedCache<String, byte[]> cache = new BoundedCache<>(100, 1_000, value -> value.length);
+        cache.put("a", new byte[400]);
+        cache.put("b", new byte[400]);
+        cache.get("a");
+        cache.put("c", new byte[400]);
+
+        assertThat(cache.get("a")).isNotNull();
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isNotNull();
+        assertThat(cache.weight()).isEqualTo(800);
+    }
+
+    @Test
+    void oneLargeValueEvictsSeveralSmallOnes() {
+        BoundedCache<String, byte[]> cache = new BoundedCache<>(100, 1_000, value -> value.length);
+        for (int i = 0; i < 10; i++) {
+            cache.put("small-" + i, new byte[100]);
+        }
+        cache.put("large", new byte[750]);
+
+        assertThat(cache.weight()).isLessThanOrEqualTo(1_000);
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(cache.get("large")).isNotNull();
+    }
+
+    @Test
+    void valueHeavierThanTheCacheIsNotKept() {
+        BoundedCache<String, byte[]> cache = new BoundedCache<>(100, 1_000, value -> value.length);
+        cache.put("a", new byte[500]);
+        cache.put("huge", new byte[1_001]);
+
+        assertThat(cache.get("huge")).isNull();
+        assertThat(cache.get("a")).isNotNull();
+    }
+
+    @Test
+    void replacingAndInvalidatingKeepTheWeightInStep() {
+        BoundedCache<String, byte[]> cache = new BoundedCache<>(100, 1_000, value -> value.length);
+        cache.put("a", new byte[300]);
+        cache.put("a", new byte[200]);
+        assertThat(cache.weight()).isEqualTo(200);
+
+        cache.invalidate("a");
+        assertThat(cache.weight()).isZero();
+
+        cache.put("b", new byte[100], System.currentTimeMillis() - 1);
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.weight()).isZero();
+    }
+}
@@ -0,0 +1,116 @@
+package com.emart.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HierarchicalTimingWheelTest {
+
+    private static final long START = 1_000;
+
+    // Ticks of 1 ms and four buckets per level: levels span 1, 4, 16 and 64 ticks
+    private final HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1, 4, START);
+
+    @Test
+    void firesAtTheDeadlineTickAndNotBefore() {
+        wheel.schedule("a", START + 3);
+
+        assertThat(wheel.advance(START + 2)).isEmpty();
+        assertThat(wheel.advance(START + 3)).containsExactly("a");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void farDeadlinesCascadeDownThroughTheLevels() {
+        wheel.schedule("far", START + 200);
+        wheel.schedule("mid", START + 37);
+        wheel.schedule("near", START + 5);
+        assertThat(wheel.levelCount()).isEqualTo(4);
+
+        // Step one tick at a time so every cascade boundary is crossed individually
+        List<Long> firedAt = new ArrayList<>();
+        List<String> fired = new ArrayList<>();
+        for (long now = START + 1; now <= START + 250; now++) {
+            for (String key : wheel.advance(now)) {
+                fired.add(key);
+                firedAt.add(now - START);
+            }
+        }
+
+        assertThat(fired).containsExactly("near", "mid", "far");
+        assertThat(firedAt).containsExactly(5L, 37L, 200L);
+    }
+
+    @Test
+    void oneLargeAdvanceReturnsEverythingInDeadlineOrder() {
+        wheel.schedule("c", START + 150);
+        wheel.schedule("a", START + 2);
+        wheel.schedule("b", START + 20);
+
+        assertThat(wheel.advance(START + 1_000)).containsExactly("a", "b", "c");
+        assertThat(wheel.advance(START + 2_000)).isEmpty();
+    }
+
+    @Test
+    void cancelledKeysNeverFire() {
+        wheel.schedule("near", START + 2);
+        wheel.schedule("far", START + 100);
+
+        assertThat(wheel.cancel("near")).isTrue();
+        assertThat(wheel.cancel("far")).isTrue();
+        assertThat(wheel.cancel("far")).isFalse();
+        assertThat(wheel.cancel("unknown")).isFalse();
+
+        assertThat(wheel.size()).isZero();
+        assertThat(wheel.advance(START + 1_000)).isEmpty();
+    }
+
+    @Test
+    void reschedulingReplacesTheDeadline() {
+        wheel.schedule("later", START + 3);
+        wheel.schedule("later", START + 90);
+        wheel.schedule("sooner", START + 90);
+        wheel.schedule("sooner", START + 3);
+
+        assertThat(wheel.advance(START + 10)).containsExactly("sooner");
+        assertThat(wheel.advance(START + 89)).isEmpty();
+        assertThat(wheel.advance(START + 90)).containsExactly("later");
+    }
+
+    @Test
+    void pastDueKeysFireOnTheNextAdvance() {
+        wheel.advance(START + 50);
+        wheel.schedule("overdue", START);
+        wheel.schedule("now", START + 50);
+
+        // Even without the clock moving
+        assertThat(wheel.advance(START + 50)).containsExactly("overdue", "now");
+
+        wheel.schedule("overdue", START);
+        assertThat(wheel.cancel("overdue")).isTrue();
+        assertThat(wheel.advance(START + 51)).isEmpty();
+    }
+
+    @Test
+    void scheduleIfAbsentKeepsAPendingDeadline() {
+        wheel.schedule("a", START + 40);
+
+        assertThat(wheel.scheduleIfAbsent("a", START)).isFalse();
+        assertThat(wheel.scheduleIfAbsent("b", START)).isTrue();
+
+        assertThat(wheel.advance(START + 1)).containsExactly("b");
+        assertThat(wheel.advance(START + 40)).containsExactly("a");
+    }
+
+    @Test
+    void firedKeysCanBeScheduledAgain() {
+        wheel.schedule("a", START + 1);
+        assertThat(wheel.advance(START + 1)).containsExactly("a");
+
+        wheel.scheduleIfAbsent("a", START + 1);
+        assertThat(wheel.advance(START + 2)).containsExactly("a");
+    }
+}